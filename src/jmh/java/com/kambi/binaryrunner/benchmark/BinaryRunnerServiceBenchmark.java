@@ -0,0 +1,73 @@
+package com.kambi.binaryrunner.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.kambi.binaryrunner.Application;
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+import com.kambi.binaryrunner.service.BinaryRunnerService;
+import com.kambi.binaryrunner.service.UnixBaseProcessBuilder;
+
+/*
+ * the request -> execute -> respond hot path with a trivial binary file, and
+ * the bare cost of spawning the same file through UnixBaseProcessBuilder
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BinaryRunnerServiceBenchmark {
+    private static final String LS_FILE = new File("src/main/resources/binaryFiles/ls.sh").getAbsolutePath();
+
+    private ConfigurableApplicationContext context;
+    private BinaryRunnerService binaryRunnerService;
+    private BinaryRunnerRequest request;
+    private UnixBaseProcessBuilder processBuilder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.root=warn", "--logging.level.com.kambi=warn");
+        binaryRunnerService = context.getBean(BinaryRunnerService.class);
+        request = new BinaryRunnerRequest(LS_FILE, List.of("/"));
+        processBuilder = new UnixBaseProcessBuilder();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BinaryRunnerResponse binaryRunner() {
+        return binaryRunnerService.binaryRunner(request);
+    }
+
+    @Benchmark
+    public int spawnProcess() throws Exception {
+        var process = processBuilder.commandExecuterBuilder(false, List.of(LS_FILE, "/")).start();
+        process.getInputStream().readAllBytes();
+        return process.waitFor();
+    }
+}
@@ -0,0 +1,34 @@
+package com.kambi.binaryrunner.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kambi.binaryrunner.model.CommandExitCode;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CommandExitCodeBenchmark {
+
+    // first entry, last entry and an unknown exit code
+    @Param({ "0", "500", "42" })
+    private int exitCode;
+
+    @Benchmark
+    public CommandExitCode getCommandExitCodeByValue() {
+        return CommandExitCode.getCommandExitCodeByValue(exitCode);
+    }
+}
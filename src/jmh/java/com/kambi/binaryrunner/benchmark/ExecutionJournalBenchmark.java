@@ -0,0 +1,65 @@
+package com.kambi.binaryrunner.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kambi.binaryrunner.service.ExecutionJournal;
+
+/*
+ * the cost of journaling an execution on the request path, by 4 threads at the
+ * same time. the records dropped because the writer falls behind are printed
+ * at the end
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ExecutionJournalBenchmark {
+    private static final List<String> COMMAND = List.of("/scripts/ls.sh", "-l", "/tmp");
+
+    private Path directory;
+    private ExecutionJournal journal;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("binary-runner-journal-");
+        journal = new ExecutionJournal(true, directory.toString(), 64 * 1024 * 1024, 4, 60000, 65536, 1, 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        System.out.println("dropped records: " + journal.getDropped());
+        try (var files = Files.walk(directory)) {
+            for (var path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        journal.record(COMMAND, 0, System.nanoTime(), 1024);
+    }
+}
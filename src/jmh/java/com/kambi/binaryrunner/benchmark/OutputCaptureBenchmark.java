@@ -0,0 +1,76 @@
+package com.kambi.binaryrunner.benchmark;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.kambi.binaryrunner.model.TruncationMode;
+import com.kambi.binaryrunner.service.BoundedOutputBuffer;
+import com.kambi.binaryrunner.service.LineSplittingOutputStream;
+
+/*
+ * capturing outputs of different sizes the way the process output is copied,
+ * in chunks of 8 KB
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OutputCaptureBenchmark {
+    private static final int CHUNK_SIZE = 8192;
+    private static final int MAX_BYTES = 1024 * 1024;
+
+    @Param({ "1024", "65536", "4194304" })
+    private int outputSize;
+
+    private byte[] output;
+
+    @Setup
+    public void setup() {
+        var line = "File: /some/directory/with/a/file/name.txt\n";
+        var builder = new StringBuilder(outputSize + line.length());
+        while (builder.length() < outputSize) {
+            builder.append(line);
+        }
+        output = builder.substring(0, outputSize).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object boundedBuffer() {
+        var buffer = new BoundedOutputBuffer(MAX_BYTES, TruncationMode.HEAD_TAIL);
+        copy(buffer);
+        return buffer.toCapturedOutput().lines();
+    }
+
+    @Benchmark
+    public void lineSplitting(Blackhole blackhole) throws Exception {
+        try (var lines = new LineSplittingOutputStream(blackhole::consume, MAX_BYTES)) {
+            copy(lines);
+        }
+    }
+
+    private void copy(OutputStream outputStream) {
+        try {
+            for (int offset = 0; offset < output.length; offset += CHUNK_SIZE) {
+                outputStream.write(output, offset, Math.min(CHUNK_SIZE, output.length - offset));
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
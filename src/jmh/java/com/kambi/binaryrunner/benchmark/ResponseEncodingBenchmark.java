@@ -0,0 +1,106 @@
+package com.kambi.binaryrunner.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.kambi.binaryrunner.config.JacksonConfig;
+import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+
+/*
+ * the cost of every response encoding: the time of serializing (and
+ * compressing) the response is measured, the bytes sent on the wire are
+ * printed once per trial since they do not change between the iterations.
+ * raw is the captured output sent as it is
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseEncodingBenchmark {
+    // the zstd level of running.compression.zstd.level
+    private static final int ZSTD_LEVEL = 3;
+
+    @Param({ "1000", "100000" })
+    private int lines;
+
+    @Param({ "json", "smile", "cbor", "raw" })
+    private String format;
+
+    @Param({ "identity", "gzip", "zstd" })
+    private String compression;
+
+    private ObjectMapper objectMapper;
+    private BinaryRunnerResponse response;
+    private byte[] rawOutput;
+
+    @Setup
+    public void setup() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "smile" -> new SmileFactory();
+            case "cbor" -> new CBORFactory();
+            default -> null;
+        };
+        // the same configuration as the application
+        var builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfig().jsonCustomizer().customize(builder);
+        if (factory != null) {
+            builder.factory(factory);
+        }
+        objectMapper = builder.build();
+
+        var details = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            details[i] = "File: /some/directory/with/a/file/name-" + i + ".txt";
+        }
+        response = new BinaryRunnerResponse(LocalDateTime.now(), "the binary file execution result", details);
+        rawOutput = String.join("\n", details).getBytes(StandardCharsets.UTF_8);
+
+        System.out.printf("%n%s %s of %d lines: %d bytes on the wire%n", format, compression, lines, encode().length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        var wire = new ByteArrayOutputStream();
+        try (var body = compress(wire)) {
+            if ("raw".equals(format)) {
+                body.write(rawOutput);
+            } else {
+                objectMapper.writeValue(body, response);
+            }
+        }
+        return wire.toByteArray();
+    }
+
+    private OutputStream compress(OutputStream wire) throws IOException {
+        return switch (compression) {
+            case "gzip" -> new GZIPOutputStream(wire);
+            case "zstd" -> new ZstdOutputStream(wire, ZSTD_LEVEL);
+            default -> wire;
+        };
+    }
+}
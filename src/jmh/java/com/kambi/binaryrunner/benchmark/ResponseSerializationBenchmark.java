@@ -0,0 +1,55 @@
+package com.kambi.binaryrunner.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kambi.binaryrunner.config.JacksonConfig;
+import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseSerializationBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    private int lines;
+
+    private ObjectMapper objectMapper;
+    private BinaryRunnerResponse response;
+
+    @Setup
+    public void setup() {
+        // the same configuration as the application
+        var builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfig().jsonCustomizer().customize(builder);
+        objectMapper = builder.build();
+
+        var details = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            details[i] = "File: /some/directory/with/a/file/name-" + i + ".txt";
+        }
+        response = new BinaryRunnerResponse(LocalDateTime.now(), "the binary file execution result", details);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
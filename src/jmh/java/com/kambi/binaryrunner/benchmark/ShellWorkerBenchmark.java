@@ -0,0 +1,75 @@
+package com.kambi.binaryrunner.benchmark;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kambi.binaryrunner.service.ProcessRegistry;
+import com.kambi.binaryrunner.service.ShellWorkerPool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * the cost of a trivial binary file started directly by the jvm and sent to a
+ * pre started shell worker. the heap is touched up front, since forking a bigger
+ * jvm is more expensive
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "-XX:+AlwaysPreTouch" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ShellWorkerBenchmark {
+    private static final List<String> COMMAND = List.of(
+            new File("src/main/resources/binaryFiles/ls.sh").getAbsolutePath(), "/");
+
+    private ProcessRegistry processRegistry;
+    private ShellWorkerPool pool;
+    private ProcessBuilder processBuilder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var meterRegistry = new SimpleMeterRegistry();
+        processRegistry = new ProcessRegistry(1000, 60000, meterRegistry);
+        pool = new ShellWorkerPool(true, 1, Integer.MAX_VALUE, 60000, processRegistry, meterRegistry);
+        processBuilder = new ProcessBuilder(COMMAND);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+        processRegistry.shutdown();
+    }
+
+    @Benchmark
+    public int directSpawn() throws Exception {
+        var process = processBuilder.start();
+        process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        return process.waitFor();
+    }
+
+    @Benchmark
+    public int shellWorker() throws Exception {
+        var worker = pool.acquire(processBuilder);
+        try {
+            return worker.execute(COMMAND, OutputStream.nullOutputStream(), OutputStream.nullOutputStream());
+        } finally {
+            pool.release(worker, true);
+        }
+    }
+}
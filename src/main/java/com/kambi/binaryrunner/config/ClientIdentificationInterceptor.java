@@ -0,0 +1,76 @@
+package com.kambi.binaryrunner.config;
+
+import java.util.function.UnaryOperator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.service.ClientQuotas;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.CLIENT_RATE_LIMITED;
+import static com.kambi.binaryrunner.model.CommandExitCode.UNKNOWN_API_KEY;
+
+/*
+ * identifying the caller of the api by its api key, or by the client header when
+ * no api key is sent, the rest of callers are anonymous. the client is kept as a
+ * request attribute and every request which runs something consumes a token of
+ * the client
+ */
+@Component
+public class ClientIdentificationInterceptor implements HandlerInterceptor {
+    public static final String CLIENT_ATTRIBUTE = "binaryRunnerClient";
+    private static final int MAX_CLIENT_LENGTH = 64;
+
+    private final ClientQuotas clientQuotas;
+    private final String clientHeader;
+    private final String apiKeyHeader;
+    private final boolean requireApiKey;
+
+    public ClientIdentificationInterceptor(ClientQuotas clientQuotas,
+            @Value("${running.clients.header}") String clientHeader,
+            @Value("${running.clients.api-key-header}") String apiKeyHeader,
+            @Value("${running.clients.require-api-key}") boolean requireApiKey) {
+        this.clientQuotas = clientQuotas;
+        this.clientHeader = clientHeader;
+        this.apiKeyHeader = apiKeyHeader;
+        this.requireApiKey = requireApiKey;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        var client = identify(request::getHeader);
+        request.setAttribute(CLIENT_ATTRIBUTE, client);
+        if (HttpMethod.POST.matches(request.getMethod()) && !clientQuotas.tryAcquireRate(client)) {
+            throw new BinaryRunningException(String.valueOf(CLIENT_RATE_LIMITED.getExitCode()));
+        }
+        return true;
+    }
+
+    // the headers are looked up by the given function, so it is used by any web stack
+    public String identify(UnaryOperator<String> headers) {
+        var apiKey = headers.apply(apiKeyHeader);
+        if (apiKey != null) {
+            var client = clientQuotas.clientOfApiKey(apiKey);
+            if (client == null) {
+                throw new BinaryRunningException(String.valueOf(UNKNOWN_API_KEY.getExitCode()));
+            }
+            return client;
+        }
+        if (requireApiKey) {
+            throw new BinaryRunningException(String.valueOf(UNKNOWN_API_KEY.getExitCode()));
+        }
+
+        var client = headers.apply(clientHeader);
+        if (client == null || client.isBlank()) {
+            return ClientQuotas.ANONYMOUS;
+        }
+        client = client.trim();
+        return client.length() > MAX_CLIENT_LENGTH ? client.substring(0, MAX_CLIENT_LENGTH) : client;
+    }
+}
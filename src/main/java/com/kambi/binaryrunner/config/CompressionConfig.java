@@ -0,0 +1,34 @@
+package com.kambi.binaryrunner.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * the responses of the api are compressed by gzip by tomcat (server.compression)
+ * and by zstd by ZstdCompressionFilter when zstd-jni is on the classpath, both
+ * of them use the same mime types and minimum response size
+ */
+@Configuration
+@ConditionalOnClass(name = "com.github.luben.zstd.ZstdOutputStream")
+@ConditionalOnProperty(name = "running.compression.zstd.enabled", havingValue = "true")
+@Slf4j
+public class CompressionConfig {
+
+    @Bean
+    FilterRegistrationBean<ZstdCompressionFilter> zstdCompressionFilter(ServerProperties serverProperties,
+            @Value("${running.compression.zstd.level}") int level) {
+        var compression = serverProperties.getCompression();
+        log.info("responses of the api will be compressed by zstd for the clients accepting it");
+        var registration = new FilterRegistrationBean<>(new ZstdCompressionFilter(compression.getMimeTypes(),
+                (int) compression.getMinResponseSize().toBytes(), level));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,57 @@
+package com.kambi.binaryrunner.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+import com.kambi.binaryrunner.jfr.ResponseSerializedEvent;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/*
+ * recording the serialization of the responses of the api for the flight
+ * recorder. the event is begun right before the body is handed to its message
+ * converter and committed when the response has been completed, so it covers
+ * writing the json to the client. streamed responses are not written
+ * by a message converter and are not recorded
+ */
+@RestControllerAdvice(basePackages = "com.kambi.binaryrunner")
+public class ResponseSerializationRecorder implements ResponseBodyAdvice<Object>, HandlerInterceptor {
+    private static final String EVENT_ATTRIBUTE = "binaryRunnerSerializationEvent";
+    private static final String LINES_ATTRIBUTE = "binaryRunnerSerializationLines";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+            ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            servletRequest.getServletRequest().setAttribute(EVENT_ATTRIBUTE, ResponseSerializedEvent.start());
+            if (body instanceof BinaryRunnerResponse runnerResponse && runnerResponse.details() != null) {
+                servletRequest.getServletRequest().setAttribute(LINES_ATTRIBUTE, runnerResponse.details().length);
+            }
+        }
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(EVENT_ATTRIBUTE) instanceof ResponseSerializedEvent event) {
+            var lines = request.getAttribute(LINES_ATTRIBUTE) instanceof Integer count ? count : 0;
+            event.finish(request.getRequestURI(), response.getStatus(), lines);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.kambi.binaryrunner.config;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * choosing the kind of threads that handle the requests and run the binary files
+ * by default platform threads are used, setting running.process.virtual-threads
+ * to true moves both the tomcat request handling and the process I/O to virtual
+ * threads (java 21 runtime is required)
+ */
+@Configuration
+@Slf4j
+public class VirtualThreadConfig {
+
+    @Bean(name = "processThreadFactory")
+    ThreadFactory processThreadFactory(@Value("${running.process.virtual-threads}") boolean virtualThreads) {
+        if (virtualThreads) {
+            log.info("binary files will be executed on virtual threads");
+            return VirtualThreads.factory("binary-runner-virtual-");
+        }
+
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, "binary-runner-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "running.process.virtual-threads", havingValue = "true")
+    TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("requests will be handled on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.executor("tomcat-virtual-"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.kambi.binaryrunner.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * virtual threads are only available from java 21 while the application is
+ * still compiled with java 17 by default, so they are reached by reflection.
+ * build with the java21 maven profile and run on a java 21 runtime for using them
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public static ThreadFactory factory(String namePrefix) {
+        try {
+            var ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads need java 21 or later, running on java "
+                    + Runtime.version(), e);
+        }
+    }
+
+    public static ExecutorService executor(String namePrefix) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory(namePrefix));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads need java 21 or later, running on java "
+                    + Runtime.version(), e);
+        }
+    }
+}
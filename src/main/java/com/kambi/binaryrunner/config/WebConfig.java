@@ -0,0 +1,24 @@
+package com.kambi.binaryrunner.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import lombok.RequiredArgsConstructor;
+
+/*
+ * every call of the api is made by an identified client, and the serialization
+ * of its response is recorded for the flight recorder
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final ClientIdentificationInterceptor clientIdentificationInterceptor;
+    private final ResponseSerializationRecorder responseSerializationRecorder;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(clientIdentificationInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(responseSerializationRecorder).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,230 @@
+package com.kambi.binaryrunner.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.MimeType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/*
+ * zstd encoding of the responses for the clients which accept it, tomcat only
+ * compresses by gzip. like tomcat only the compressible mime types are encoded
+ * and a response smaller than minResponseSize is sent as it is, so the
+ * beginning of a compressible body is buffered until its size is known to be
+ * enough. a response of another type (e.g. a stream of lines) is passed
+ * through from its first byte. tomcat does not gzip an already encoded response
+ */
+public class ZstdCompressionFilter extends OncePerRequestFilter {
+    private static final String ZSTD = "zstd";
+
+    private final List<MimeType> mimeTypes;
+    private final int minResponseSize;
+    private final int level;
+
+    public ZstdCompressionFilter(String[] mimeTypes, int minResponseSize, int level) {
+        this.mimeTypes = Arrays.stream(mimeTypes).map(MimeType::valueOf).toList();
+        this.minResponseSize = minResponseSize;
+        this.level = level;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!acceptsZstd(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        var compressingResponse = new CompressingResponse(response);
+        chain.doFilter(request, compressingResponse);
+        if (!request.isAsyncStarted()) {
+            compressingResponse.finish();
+        }
+    }
+
+    // zstd is accepted unless its quality is zero
+    static boolean acceptsZstd(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        return Arrays.stream(acceptEncoding.split(","))
+                .map(encoding -> encoding.trim().split(";"))
+                .anyMatch(encoding -> encoding[0].trim().equalsIgnoreCase(ZSTD)
+                        && (encoding.length == 1 || !encoding[1].replace(" ", "").matches("q=0(\\.0*)?")));
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        var type = MimeType.valueOf(contentType);
+        return mimeTypes.stream().anyMatch(mimeType -> mimeType.includes(type));
+    }
+
+    private class CompressingResponse extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private long contentLength = -1;
+        // null until it is known whether the body is compressed
+        private OutputStream target;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        private CompressingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                var servletOutputStream = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[] { (byte) b }, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        CompressingResponse.this.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        // a body which is still buffered is not worth sending yet
+                        if (target != null) {
+                            target.flush();
+                        }
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return servletOutputStream.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        servletOutputStream.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        // the length of the encoded body is not known, it is only sent for a body sent as it is
+        @Override
+        public void setContentLength(int length) {
+            setContentLengthLong(length);
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            if (target == null) {
+                contentLength = length;
+            } else if (!isCompressed()) {
+                super.setContentLengthLong(length);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (target != null) {
+                target.flush();
+                super.flushBuffer();
+            }
+        }
+
+        private void write(byte[] bytes, int offset, int length) throws IOException {
+            if (target == null) {
+                if (!isCompressible(getContentType())) {
+                    decide(false);
+                } else {
+                    buffer.write(bytes, offset, length);
+                    if (buffer.size() >= minResponseSize) {
+                        decide(true);
+                    }
+                    return;
+                }
+            }
+            target.write(bytes, offset, length);
+        }
+
+        private void decide(boolean compress) throws IOException {
+            var response = (HttpServletResponse) getResponse();
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (compress && !response.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, ZSTD);
+                target = new ZstdOutputStream(response.getOutputStream(), level);
+            } else {
+                if (contentLength != -1) {
+                    response.setContentLengthLong(contentLength);
+                }
+                target = response.getOutputStream();
+            }
+            buffer.writeTo(target);
+            buffer.reset();
+        }
+
+        private boolean isCompressed() {
+            return target instanceof ZstdOutputStream;
+        }
+
+        // a body which has never reached minResponseSize is sent as it is
+        private void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target == null) {
+                if (buffer.size() == 0 && contentLength == -1) {
+                    return;
+                }
+                decide(false);
+            }
+            if (isCompressed()) {
+                target.close();
+            } else {
+                target.flush();
+            }
+        }
+    }
+}
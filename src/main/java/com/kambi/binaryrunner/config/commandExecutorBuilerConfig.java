@@ -1,9 +1,11 @@
 package com.kambi.binaryrunner.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.kambi.binaryrunner.service.CommandExecutorBuilderStrategy;
+import com.kambi.binaryrunner.service.ResourceLimits;
 import com.kambi.binaryrunner.service.UnixBaseProcessBuilder;
 import com.kambi.binaryrunner.service.WindowsProcessBuilder;
 
@@ -14,14 +16,19 @@ import lombok.extern.slf4j.Slf4j;
 public class commandExecutorBuilerConfig {
 
     @Bean(name = "commandExecutorBuilder")
-    CommandExecutorBuilderStrategy commandExecutorBuilder() {
+    CommandExecutorBuilderStrategy commandExecutorBuilder(@Value("${running.limits.cpu-time}") String cpuTimeLimits,
+            @Value("${running.limits.memory}") String memoryLimits) {
         var os = System.getProperty("os.name").toLowerCase();
         log.info("operation system is {}", os);
+        var limits = ResourceLimits.parse(cpuTimeLimits, memoryLimits);
 
         if (os.contains("windows")) {
+            if (!limits.isEmpty()) {
+                log.warn("resource limits of the binary files are not supported on {}, they are ignored", os);
+            }
             return new WindowsProcessBuilder();
         } else {
-            return new UnixBaseProcessBuilder();
+            return new UnixBaseProcessBuilder(limits);
         }
     }
 
@@ -1,21 +1,45 @@
 package com.kambi.binaryrunner.controller;
 
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.kambi.binaryrunner.config.ClientIdentificationInterceptor;
+import com.kambi.binaryrunner.dto.BinaryRunnerBatchRequest;
+import com.kambi.binaryrunner.dto.BinaryRunnerBatchResponse;
+import com.kambi.binaryrunner.dto.BinaryRunnerPipelineRequest;
 import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
 import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+import com.kambi.binaryrunner.dto.BinaryRunnerStreamEvent;
+import com.kambi.binaryrunner.jfr.RequestReceivedEvent;
+import com.kambi.binaryrunner.service.BinaryRunnerBatchService;
 import com.kambi.binaryrunner.service.BinaryRunnerService;
+import com.kambi.binaryrunner.service.ExecutionAdmission;
+import com.kambi.binaryrunner.service.OutputFilter;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -25,7 +49,11 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class BinaryRunnerController {
 
+        public static final String OUTPUT_TRUNCATED_HEADER = "X-Output-Truncated";
+
         private final BinaryRunnerService service;
+        private final BinaryRunnerBatchService batchService;
+        private final Validator validator;
 
         @PostMapping("v1/runner")
         @Operation(summary = "running the executable file and bringing back its response")
@@ -40,12 +68,150 @@ public class BinaryRunnerController {
                                         @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
                         @ApiResponse(responseCode = "408", description = "command execution timeout", content = {
                                         @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "429", description = "too many requests or running binary files of the client", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
                         @ApiResponse(responseCode = "500", description = "internal server error", content = {
                                         @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
         })
-        public BinaryRunnerResponse binaryRunner(@Valid @RequestBody BinaryRunnerRequest request) {
-                log.info("received request: {}", request.toString());
-                return service.binaryRunner(request);
+        public BinaryRunnerResponse binaryRunner(@Valid @RequestBody BinaryRunnerRequest request,
+                        @Parameter(hidden = true) @RequestAttribute(ClientIdentificationInterceptor.CLIENT_ATTRIBUTE) String client) {
+                log.info("received request from {}: {}", client, request.toString());
+                RequestReceivedEvent.emit("runner", request.getBinaryFile(), request.getArguments(), client);
+                return service.binaryRunner(request, client);
+        }
+
+        @PostMapping(value = "v1/runner", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+        @Operation(summary = "running the executable file and bringing back its output as it is, chosen by Accept: application/octet-stream")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "input binary has been executed succssfully, the body is its raw output", content = {
+                                        @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE) }),
+                        @ApiResponse(responseCode = "400", description = "bad request", content = {
+                                        @Content(array = @ArraySchema(schema = @Schema(implementation = String.class))) }),
+                        @ApiResponse(responseCode = "404", description = "Command not found", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "408", description = "command execution timeout", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
+        })
+        public ResponseEntity<byte[]> binaryRunnerRaw(@Valid @RequestBody BinaryRunnerRequest request,
+                        @Parameter(hidden = true) @RequestAttribute(ClientIdentificationInterceptor.CLIENT_ATTRIBUTE) String client) {
+                log.info("received raw request from {}: {}", client, request.toString());
+                RequestReceivedEvent.emit("raw", request.getBinaryFile(), request.getArguments(), client);
+                var output = service.binaryRunnerRaw(request, client);
+                var response = ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM);
+                // the output is not split, so the truncation can only be told by a header
+                if (output.truncated()) {
+                        response.header(OUTPUT_TRUNCATED_HEADER, "true");
+                }
+                return response.body(output.data());
+        }
+
+        @PostMapping("v1/runner/batch")
+        @Operation(summary = "running a list of executable files in parallel and bringing back their responses in the same order")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "all binary files have been handled, the status of each one is in its item", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerBatchResponse.class)) }),
+                        @ApiResponse(responseCode = "400", description = "bad request", content = {
+                                        @Content(array = @ArraySchema(schema = @Schema(implementation = String.class))) })
+        })
+        public BinaryRunnerBatchResponse binaryRunnerBatch(@Valid @RequestBody BinaryRunnerBatchRequest request,
+                        @Parameter(hidden = true) @RequestAttribute(ClientIdentificationInterceptor.CLIENT_ATTRIBUTE) String client) {
+                log.info("received batch request from {}: {}", client, request.toString());
+                request.getRequests().forEach(item -> RequestReceivedEvent.emit("batch", item.getBinaryFile(),
+                                item.getArguments(), client));
+                return batchService.binaryRunnerBatch(request, client);
+        }
+
+        @PostMapping("v1/runner/pipeline")
+        @Operation(summary = "running a list of executable files connected by pipes, the output of each one is the input of the next one, and bringing back the output of the last one")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "all binary files of the pipeline have been executed succssfully", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "400", description = "bad request", content = {
+                                        @Content(array = @ArraySchema(schema = @Schema(implementation = String.class))) }),
+                        @ApiResponse(responseCode = "404", description = "Command not found", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "408", description = "pipeline execution timeout", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "429", description = "too many requests or running binary files of the client", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
+        })
+        public BinaryRunnerResponse binaryRunnerPipeline(@Valid @RequestBody BinaryRunnerPipelineRequest request,
+                        @Parameter(hidden = true) @RequestAttribute(ClientIdentificationInterceptor.CLIENT_ATTRIBUTE) String client) {
+                log.info("received pipeline request from {}: {}", client, request.toString());
+                request.getStages().forEach(stage -> RequestReceivedEvent.emit("pipeline", stage.getBinaryFile(),
+                                stage.getArguments(), client));
+                return service.binaryRunnerPipeline(request, client);
+        }
+
+        @PostMapping(value = "v1/runner/input", consumes = { MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                        MediaType.TEXT_PLAIN_VALUE })
+        @Operation(summary = "running the executable file with the request body as its standard input and bringing back its response, the body is streamed to the binary file as it is received")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "input binary has been executed succssfully", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "400", description = "bad request", content = {
+                                        @Content(array = @ArraySchema(schema = @Schema(implementation = String.class))) }),
+                        @ApiResponse(responseCode = "404", description = "Command not found", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "408", description = "command execution timeout", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "429", description = "too many requests or running binary files of the client", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
+        })
+        public BinaryRunnerResponse binaryRunnerInput(@RequestParam String binaryFile,
+                        @RequestParam(required = false) List<String> arguments,
+                        @RequestParam(required = false) Long timeout,
+                        @Parameter(hidden = true) InputStream input,
+                        @Parameter(hidden = true) @RequestAttribute(ClientIdentificationInterceptor.CLIENT_ATTRIBUTE) String client) {
+                // the body is the input, so the request is sent as query parameters and validated here
+                var request = new BinaryRunnerRequest(binaryFile, arguments, null, timeout);
+                var violations = validator.validate(request);
+                if (!violations.isEmpty()) {
+                        throw new ConstraintViolationException(violations);
+                }
+                log.info("received input request from {}: {}", client, request.toString());
+                RequestReceivedEvent.emit("input", binaryFile, arguments, client);
+                return service.binaryRunner(request, input, client);
+        }
+
+        @PostMapping(value = "v1/runner/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+        @Operation(summary = "running the executable file and streaming its output line by line, the exit code is sent as the last line")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "input binary has been started, output and exit code are streamed", content = {
+                                        @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = BinaryRunnerStreamEvent.class)) }),
+                        @ApiResponse(responseCode = "400", description = "bad request", content = {
+                                        @Content(array = @ArraySchema(schema = @Schema(implementation = String.class))) }),
+                        @ApiResponse(responseCode = "404", description = "Command not found", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "503", description = "host is overloaded", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
+        })
+        public ResponseEntity<StreamingResponseBody> binaryRunnerStream(@Valid @RequestBody BinaryRunnerRequest request,
+                        @Parameter(hidden = true) @RequestAttribute(ClientIdentificationInterceptor.CLIENT_ATTRIBUTE) String client,
+                        NativeWebRequest webRequest) {
+                log.info("received stream request from {}: {}", client, request.toString());
+                RequestReceivedEvent.emit("stream", request.getBinaryFile(), request.getArguments(), client);
+                var plan = service.prepareExecution(request);
+                var filter = OutputFilter.of(request);
+                var admission = service.admitExecution();
+                releaseOnCompletion(webRequest, admission);
+                StreamingResponseBody body = outputStream -> service.streamBinary(plan, filter, client, admission, outputStream);
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+        }
+
+        /*
+         * the body may never run (e.g. the client is gone or the async request is
+         * timed out before it is started), so the end of the async request gives
+         * back the permit which has not been claimed by the execution
+         */
+        private static void releaseOnCompletion(NativeWebRequest webRequest, ExecutionAdmission admission) {
+                WebAsyncUtils.getAsyncManager(webRequest).registerCallableInterceptor(admission,
+                                new CallableProcessingInterceptor() {
+                                        @Override
+                                        public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                                                admission.release();
+                                        }
+                                });
         }
 
 }
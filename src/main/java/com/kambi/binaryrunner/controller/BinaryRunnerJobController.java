@@ -0,0 +1,95 @@
+package com.kambi.binaryrunner.controller;
+
+import java.net.URI;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kambi.binaryrunner.config.ClientIdentificationInterceptor;
+import com.kambi.binaryrunner.dto.BinaryRunnerJobOutput;
+import com.kambi.binaryrunner.dto.BinaryRunnerJobResponse;
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+import com.kambi.binaryrunner.service.BinaryRunnerJobService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@RequestMapping("/api/")
+@RequiredArgsConstructor
+@Slf4j
+public class BinaryRunnerJobController {
+
+        private static final int MAX_PAGE_SIZE = 1000;
+
+        private final BinaryRunnerJobService jobService;
+
+        @PostMapping("v1/jobs")
+        @Operation(summary = "running the executable file in the background and bringing back the job id")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "202", description = "job has been submitted", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerJobResponse.class)) }),
+                        @ApiResponse(responseCode = "404", description = "Command not found", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "429", description = "too many requests or running binary files of the client", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "503", description = "too many jobs or the host is overloaded", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
+        })
+        public ResponseEntity<BinaryRunnerJobResponse> submitJob(@Valid @RequestBody BinaryRunnerRequest request,
+                        @Parameter(hidden = true) @RequestAttribute(ClientIdentificationInterceptor.CLIENT_ATTRIBUTE) String client) {
+                log.info("received job request from {}: {}", client, request.toString());
+                var job = jobService.submit(request, client);
+                return ResponseEntity.accepted()
+                                .location(URI.create("/api/v1/jobs/" + job.getId()))
+                                .body(BinaryRunnerJobResponse.from(job));
+        }
+
+        @GetMapping("v1/jobs/{id}")
+        @Operation(summary = "bringing back the status and the exit code of the job")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "job status", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerJobResponse.class)) }),
+                        @ApiResponse(responseCode = "404", description = "job not found", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
+        })
+        public BinaryRunnerJobResponse getJob(@PathVariable String id) {
+                return BinaryRunnerJobResponse.from(jobService.getJob(id));
+        }
+
+        @GetMapping("v1/jobs/{id}/output")
+        @Operation(summary = "bringing back a page of the job output")
+        public BinaryRunnerJobOutput getJobOutput(@PathVariable String id,
+                        @RequestParam(defaultValue = "0") int offset,
+                        @RequestParam(defaultValue = "100") int limit) {
+                var job = jobService.getJob(id);
+                // status is read before the output, so a finished job has no line after this page
+                var finished = job.getStatus().isFinished();
+                var from = Math.max(offset, 0);
+                var page = jobService.getOutput(id, from, Math.min(Math.max(limit, 1), MAX_PAGE_SIZE));
+                return new BinaryRunnerJobOutput(id, from, page.nextOffset(), finished,
+                                page.lines().toArray(String[]::new), job.isOutputTruncated() ? Boolean.TRUE : null);
+        }
+
+        @DeleteMapping("v1/jobs/{id}")
+        @Operation(summary = "cancelling the job and destroying its processes, a finished job is removed")
+        public BinaryRunnerJobResponse cancelJob(@PathVariable String id) {
+                return BinaryRunnerJobResponse.from(jobService.cancel(id));
+        }
+}
@@ -0,0 +1,26 @@
+package com.kambi.binaryrunner.controller;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.kambi.binaryrunner.service.AdaptiveConcurrencyLimiter;
+
+import lombok.RequiredArgsConstructor;
+
+// the state of the adaptive concurrency limiter: /actuator/concurrency
+@Component
+@Endpoint(id = "concurrency")
+@RequiredArgsConstructor
+public class ConcurrencyLimiterEndpoint {
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    @ReadOperation
+    public LimiterState state() {
+        return new LimiterState(limiter.isEnabled(), limiter.getLimit(), limiter.getInflight(),
+                limiter.getLoadPerCpu(), (long) limiter.getRejectedCount());
+    }
+
+    public record LimiterState(boolean enabled, int limit, int inflight, double loadPerCpu, long rejected) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.kambi.binaryrunner.controller;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.kambi.binaryrunner.service.ExecutionJournal;
+
+import lombok.RequiredArgsConstructor;
+
+/*
+ * scanning the execution journal: /actuator/journal?from=&to=&script=&limit=
+ * from and to are iso instants (e.g. 2023-06-01T10:00:00Z), the whole journal
+ * if they are not given, and script is the file name of the binary file
+ */
+@Component
+@Endpoint(id = "journal")
+@RequiredArgsConstructor
+public class ExecutionJournalEndpoint {
+    private final ExecutionJournal journal;
+
+    @ReadOperation
+    public JournalQuery query(@Nullable String from, @Nullable String to, @Nullable String script,
+            @Nullable Integer limit) {
+        var entries = journal.query(parse("from", from, Long.MIN_VALUE), parse("to", to, Long.MAX_VALUE), script,
+                limit);
+        return new JournalQuery(journal.isEnabled(), journal.getDropped(), entries.size(), entries);
+    }
+
+    private static long parse(String name, String instant, long defaultValue) {
+        if (instant == null || instant.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Instant.parse(instant).toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            throw new InvalidEndpointRequestException(name + " should be an iso instant", ex.getMessage());
+        }
+    }
+
+    public record JournalQuery(boolean enabled, long dropped, int count, List<ExecutionJournal.Entry> entries) {
+    }
+}
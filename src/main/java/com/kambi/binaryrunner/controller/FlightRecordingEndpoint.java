@@ -0,0 +1,67 @@
+package com.kambi.binaryrunner.controller;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.kambi.binaryrunner.service.FlightRecordingService;
+
+import jdk.jfr.Recording;
+import lombok.RequiredArgsConstructor;
+
+/*
+ * bounded flight recordings: /actuator/flightrecording
+ * POST starts one (optional duration in milliseconds), DELETE stops it, GET
+ * brings back its state and GET /actuator/flightrecording/{id} downloads its
+ * .jfr file
+ */
+@Component
+@Endpoint(id = "flightrecording")
+@RequiredArgsConstructor
+public class FlightRecordingEndpoint {
+    private final FlightRecordingService recordingService;
+
+    @ReadOperation
+    public RecordingInfo state() {
+        return RecordingInfo.of(recordingService.getRecording());
+    }
+
+    @WriteOperation
+    public RecordingInfo start(@Nullable Long duration) {
+        return RecordingInfo.of(recordingService.start(duration));
+    }
+
+    @DeleteOperation
+    public RecordingInfo stop() {
+        return RecordingInfo.of(recordingService.stop());
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector long id) throws IOException {
+        var file = recordingService.fileOf(id);
+        if (file == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(new FileSystemResource(file));
+    }
+
+    public record RecordingInfo(Long id, String state, Instant startTime, Long duration, long size) {
+        private static RecordingInfo of(Recording recording) {
+            if (recording == null) {
+                return new RecordingInfo(null, "NONE", null, null, 0);
+            }
+            return new RecordingInfo(recording.getId(), recording.getState().name(), recording.getStartTime(),
+                    recording.getDuration() == null ? null : recording.getDuration().toMillis(), recording.getSize());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.kambi.binaryrunner.controller;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kambi.binaryrunner.config.ClientIdentificationInterceptor;
+import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+import com.kambi.binaryrunner.dto.MaterializedViewRequest;
+import com.kambi.binaryrunner.dto.MaterializedViewResponse;
+import com.kambi.binaryrunner.service.MaterializedViewService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@RequestMapping("/api/")
+@RequiredArgsConstructor
+@Slf4j
+public class MaterializedViewController {
+
+        private final MaterializedViewService viewService;
+
+        @PostMapping("v1/views")
+        @Operation(summary = "running the executable file on a schedule and keeping its latest response, an already registered one brings back its existing view")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "201", description = "view has been registered", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = MaterializedViewResponse.class)) }),
+                        @ApiResponse(responseCode = "404", description = "Command not found", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "503", description = "too many views", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
+        })
+        public ResponseEntity<MaterializedViewResponse> registerView(@Valid @RequestBody MaterializedViewRequest request,
+                        @Parameter(hidden = true) @RequestAttribute(ClientIdentificationInterceptor.CLIENT_ATTRIBUTE) String client) {
+                log.info("received view request from {}: {}", client, request.toString());
+                var view = viewService.register(request, client);
+                return ResponseEntity.created(URI.create("/api/v1/views/" + view.getId()))
+                                .body(MaterializedViewResponse.from(view));
+        }
+
+        @GetMapping("v1/views")
+        @Operation(summary = "bringing back all the registered views")
+        public List<MaterializedViewResponse> getViews() {
+                return viewService.getViews().stream().map(MaterializedViewResponse::from).toList();
+        }
+
+        @GetMapping("v1/views/{id}")
+        @Operation(summary = "bringing back the latest response of the view from the memory, its age in seconds is sent by the Age header")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "latest response of the binary file", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "404", description = "view not found", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
+        })
+        public ResponseEntity<BinaryRunnerResponse> readView(@PathVariable String id) {
+                var snapshot = viewService.read(id);
+                return ResponseEntity.ok()
+                                .header(HttpHeaders.AGE, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(snapshot.age())))
+                                .body(snapshot.response());
+        }
+
+        @DeleteMapping("v1/views/{id}")
+        @Operation(summary = "removing the view, its binary file is not run anymore. only the client which has registered the view is able to remove it")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "view has been removed", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = MaterializedViewResponse.class)) }),
+                        @ApiResponse(responseCode = "403", description = "view has been registered by another client", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) }),
+                        @ApiResponse(responseCode = "404", description = "view not found", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = BinaryRunnerResponse.class)) })
+        })
+        public MaterializedViewResponse removeView(@PathVariable String id,
+                        @Parameter(hidden = true) @RequestAttribute(ClientIdentificationInterceptor.CLIENT_ATTRIBUTE) String client) {
+                log.info("received view removal from {}: {}", client, id);
+                return MaterializedViewResponse.from(viewService.remove(id, client));
+        }
+}
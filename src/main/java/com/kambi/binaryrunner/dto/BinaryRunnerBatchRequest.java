@@ -0,0 +1,38 @@
+package com.kambi.binaryrunner.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@Builder
+public class BinaryRunnerBatchRequest {
+
+    @NotEmpty
+    @Size(max = 100, message = "at most 100 binary files can be executed in a batch")
+    @Schema(description = "binary files of the batch, the results are returned in the same order")
+    private List<@Valid BinaryRunnerRequest> requests;
+
+    @Positive
+    @Schema(description = "maximum number of binary files of the batch that run at the same time, it is capped by the server", example = "4")
+    private Integer concurrency;
+
+    @Schema(description = "stop starting the rest of binary files after the first failure", example = "false")
+    private boolean failFast;
+
+    @Override
+    public String toString() {
+        return "requests=" + (requests == null ? 0 : requests.size()) + ",concurrency=" + concurrency
+                + ",failFast=" + failFast;
+    }
+}
@@ -0,0 +1,14 @@
+package com.kambi.binaryrunner.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record BinaryRunnerBatchResponse(LocalDateTime timestamp, List<Item> results) {
+
+    /*
+     * result of one binary file of the batch, status is the http status that the
+     * single runner endpoint would have returned for it
+     */
+    public record Item(int index, int status, BinaryRunnerResponse response) {
+    }
+}
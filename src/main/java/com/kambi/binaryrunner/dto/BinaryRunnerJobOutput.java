@@ -0,0 +1,11 @@
+package com.kambi.binaryrunner.dto;
+
+/*
+ * a page of the job output, nextOffset should be used for fetching the next
+ * page, when finished is true and no line is returned the whole output has
+ * been read. truncated is only present when some lines of the output have been
+ * dropped for keeping it in the allowed size
+ */
+public record BinaryRunnerJobOutput(String id, int offset, int nextOffset, boolean finished, String[] lines,
+        Boolean truncated) {
+}
@@ -0,0 +1,20 @@
+package com.kambi.binaryrunner.dto;
+
+import java.time.LocalDateTime;
+
+import com.kambi.binaryrunner.model.BinaryRunnerJob;
+import com.kambi.binaryrunner.model.CommandExitCode;
+import com.kambi.binaryrunner.model.JobStatus;
+
+public record BinaryRunnerJobResponse(String id, String binaryFile, JobStatus status, Integer exitCode,
+        String message, LocalDateTime submittedAt, LocalDateTime startedAt, LocalDateTime finishedAt,
+        int outputLines, Boolean outputTruncated) {
+
+    public static BinaryRunnerJobResponse from(BinaryRunnerJob job) {
+        var exitCode = job.getExitCode();
+        var message = exitCode == null ? null : CommandExitCode.getCommandExitCodeByValue(exitCode).getErrorMessage();
+        return new BinaryRunnerJobResponse(job.getId(), job.getBinaryFile(), job.getStatus(), exitCode, message,
+                job.getSubmittedAt(), job.getStartedAt(), job.getFinishedAt(), job.getOutputSize(),
+                job.isOutputTruncated() ? Boolean.TRUE : null);
+    }
+}
@@ -0,0 +1,34 @@
+package com.kambi.binaryrunner.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@Builder
+public class BinaryRunnerPipelineRequest {
+
+    @NotEmpty
+    @Size(max = 10, message = "at most 10 binary files can be chained in a pipeline")
+    @Schema(description = "binary files of the pipeline, the output of each one is the input of the next one")
+    private List<@Valid BinaryRunnerRequest> stages;
+
+    @Positive
+    @Schema(description = "timeout of the whole pipeline in milliseconds, at most the timeout of the server", example = "1000")
+    private Long timeout;
+
+    @Override
+    public String toString() {
+        return "stages=" + stages + ",timeout=" + timeout;
+    }
+}
@@ -6,14 +6,21 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 
 @Getter
 @Setter
-@AllArgsConstructor
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
 @Builder
 public class BinaryRunnerRequest {
 
@@ -25,6 +32,56 @@ public class BinaryRunnerRequest {
     @Schema(description = "an array of all option(s) and argument(s) related to the executable binary file", example = "[/app/, -l]")
     private List<String> arguments;
 
+    @Schema(description = "serving the result from the cache if the binary file has been executed by the same arguments recently, the binary file should be idempotent", example = "false")
+    private Boolean cache;
+
+    @Positive
+    @Schema(description = "timeout of the execution in milliseconds, at most the timeout of the server", example = "1000")
+    private Long timeout;
+
+    @Size(max = 256)
+    @Schema(description = "keeping only the output lines matching the regular expression, at most 256 characters", example = "\\.log$")
+    private String grep;
+
+    @Positive
+    @Schema(description = "keeping only the first lines of the output, the binary file is stopped when they are read", example = "10")
+    private Integer head;
+
+    @Positive
+    @Schema(description = "keeping only the last lines of the output", example = "10")
+    private Integer tail;
+
+    @Positive
+    @Schema(description = "reading at most this number of lines of the output, the binary file is stopped when they are read", example = "100000")
+    private Integer maxLines;
+
+    @Schema(description = "sending back only the number of the kept lines instead of them", example = "false")
+    private Boolean countOnly;
+
+    public BinaryRunnerRequest(String binaryFile, List<String> arguments) {
+        this(binaryFile, arguments, null, null);
+    }
+
+    public BinaryRunnerRequest(String binaryFile, List<String> arguments, Boolean cache, Long timeout) {
+        this(binaryFile, arguments, cache, timeout, null, null, null, null, null);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "grep should be a valid regular expression")
+    public boolean isGrepValid() {
+        try {
+            return grep == null || java.util.regex.Pattern.compile(grep) != null;
+        } catch (PatternSyntaxException ex) {
+            return false;
+        }
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "head and tail can not be used together")
+    public boolean isHeadOrTail() {
+        return head == null || tail == null;
+    }
+
     @Override
     public String toString() {
         if (this.arguments == null || this.arguments.isEmpty()) {
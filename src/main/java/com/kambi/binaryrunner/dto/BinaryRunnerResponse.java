@@ -2,5 +2,23 @@ package com.kambi.binaryrunner.dto;
 
 import java.time.LocalDateTime;
 
-public record BinaryRunnerResponse(LocalDateTime timestamp, String message, String[] details) {
+import com.kambi.binaryrunner.model.CommandExitCode;
+import com.kambi.binaryrunner.model.ResourceUsage;
+
+/*
+ * truncated is only present when the output of the binary file has been bigger
+ * than the allowed size and some part of it has been dropped, usage is only
+ * present when the resources used by the binary file have been sampled
+ */
+public record BinaryRunnerResponse(LocalDateTime timestamp, String message, String[] details, Boolean truncated,
+        ResourceUsage usage) {
+
+    public BinaryRunnerResponse(LocalDateTime timestamp, String message, String[] details) {
+        this(timestamp, message, details, null, null);
+    }
+
+    public static BinaryRunnerResponse runningError(CommandExitCode exitCode) {
+        String[] errors = new String[] { exitCode.getErrorMessage() };
+        return new BinaryRunnerResponse(LocalDateTime.now(), "error during running the binary file", errors);
+    }
 }
\ No newline at end of file
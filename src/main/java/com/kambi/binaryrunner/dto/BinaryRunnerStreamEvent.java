@@ -0,0 +1,16 @@
+package com.kambi.binaryrunner.dto;
+
+/*
+ * one line of the streamed output, either an output line of the binary file or
+ * the trailing event which contains the exit code of the binary file
+ */
+public record BinaryRunnerStreamEvent(String line, Integer exitCode, String message) {
+
+    public static BinaryRunnerStreamEvent output(String line) {
+        return new BinaryRunnerStreamEvent(line, null, null);
+    }
+
+    public static BinaryRunnerStreamEvent exit(int exitCode, String message) {
+        return new BinaryRunnerStreamEvent(null, exitCode, message);
+    }
+}
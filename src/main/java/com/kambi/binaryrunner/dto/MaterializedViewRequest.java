@@ -0,0 +1,43 @@
+package com.kambi.binaryrunner.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor(onConstructor_ = @JsonCreator)
+@Builder
+public class MaterializedViewRequest {
+
+    @NotNull
+    @Pattern(regexp = "^.*\\.(sh|bat)$", message = "inputted file should be an executable")
+    @Schema(description = "it should end with .sh, the binary file should be idempotent", example = "/command/ls.sh")
+    private String binaryFile;
+
+    @Schema(description = "an array of all option(s) and argument(s) related to the executable binary file", example = "[/app/, -l]")
+    private List<String> arguments;
+
+    @NotNull
+    @Positive
+    @Schema(description = "the binary file is run again every refreshInterval milliseconds, at least the minimum interval of the server", example = "5000")
+    private Long refreshInterval;
+
+    public BinaryRunnerRequest toRunnerRequest() {
+        return new BinaryRunnerRequest(binaryFile, arguments == null ? null : List.copyOf(arguments));
+    }
+
+    @Override
+    public String toString() {
+        return toRunnerRequest() + ",refreshInterval=" + refreshInterval;
+    }
+}
@@ -0,0 +1,16 @@
+package com.kambi.binaryrunner.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.kambi.binaryrunner.model.MaterializedView;
+
+public record MaterializedViewResponse(String id, String binaryFile, List<String> arguments, long refreshInterval,
+        LocalDateTime refreshedAt, Integer lastExitCode) {
+
+    public static MaterializedViewResponse from(MaterializedView view) {
+        var request = view.getRequest();
+        return new MaterializedViewResponse(view.getId(), request.getBinaryFile(), request.getArguments(),
+                view.getRefreshInterval(), view.getRefreshedAt(), view.getLastExitCode());
+    }
+}
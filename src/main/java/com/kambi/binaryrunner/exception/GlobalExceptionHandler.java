@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
@@ -20,12 +21,16 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
 import com.kambi.binaryrunner.model.CommandExitCode;
 
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 
 @RestControllerAdvice
 @Slf4j
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
+	@Value("${running.limiter.retry-after}")
+	private long retryAfter;
+
 	// handling validaiton related errors
 	@Override
 	protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
@@ -50,6 +55,19 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 		return handleExceptionInternal(ex, errorResponse, headers, HttpStatus.BAD_REQUEST, request);
 	}
 
+	// handling validation errors of the requests which are not sent as a json body
+	@ExceptionHandler(ConstraintViolationException.class)
+	public ResponseEntity<Object> handleConstraintViolation(ConstraintViolationException ex, WebRequest request) {
+		String[] details = ex.getConstraintViolations().stream()
+				.map(violation -> violation.getPropertyPath() + ":" + violation.getMessage())
+				.toArray(String[]::new);
+		for (String detail : details) {
+			log.error("{}", detail);
+		}
+		var errorResponse = new BinaryRunnerResponse(LocalDateTime.now(), "Validation failed", details);
+		return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+	}
+
 	@ExceptionHandler(value = { JsonMappingException.class })
 	public ResponseEntity<Object> handleJacksonError(final JsonMappingException ex, final WebRequest request) {
 		log.error("Cannot parse request. {}", ex.getMessage());
@@ -65,9 +83,14 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 		var exitCode = CommandExitCode.getCommandExitCodeByValue(Integer.valueOf(ex.getMessage()));
 		log.error("exception has been occured during runningt the binary file\n {}", exitCode.getErrorMessage());
 
-		String[] errors = new String[] { exitCode.getErrorMessage() };
-		var errorResponse = new BinaryRunnerResponse(LocalDateTime.now(), "error during running the binary file",
-				errors);
+		var errorResponse = BinaryRunnerResponse.runningError(exitCode);
+		// an overloaded service or a busy client is told when it is worth to try again
+		if (exitCode.getHttpstatus() == HttpStatus.SERVICE_UNAVAILABLE
+				|| exitCode.getHttpstatus() == HttpStatus.TOO_MANY_REQUESTS) {
+			var headers = new HttpHeaders();
+			headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+			return new ResponseEntity<>(errorResponse, headers, exitCode.getHttpstatus());
+		}
 		return new ResponseEntity<>(errorResponse, exitCode.getHttpstatus());
 	}
 
@@ -0,0 +1,32 @@
+package com.kambi.binaryrunner.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kambi.binaryrunner.FirstOutput")
+@Label("First Output")
+@Description("the first byte of the standard output of the binary file has been read, since the process has been started")
+@Category({ "Binary Runner", "Execution" })
+@StackTrace(false)
+public class FirstOutputEvent extends jdk.jfr.Event {
+    @Label("Script")
+    String script;
+
+    // begun when the output of the started process is read, ended by its first byte
+    public static FirstOutputEvent start() {
+        var event = new FirstOutputEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String script) {
+        end();
+        if (shouldCommit()) {
+            this.script = script;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.kambi.binaryrunner.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kambi.binaryrunner.PathResolved")
+@Label("Path Resolved")
+@Description("the binary file has been validated and its execution plan is ready")
+@Category({ "Binary Runner", "Execution" })
+@StackTrace(false)
+public class PathResolvedEvent extends jdk.jfr.Event {
+    @Label("Script")
+    String script;
+
+    @Label("Argument Count")
+    int argumentCount;
+
+    @Label("Cached")
+    @Description("the execution plan has been served from the cache")
+    boolean cached;
+
+    // begun before the request is validated, so the duration of the event is the resolution time
+    public static PathResolvedEvent start() {
+        var event = new PathResolvedEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String script, int argumentCount, boolean cached) {
+        end();
+        if (shouldCommit()) {
+            this.script = script;
+            this.argumentCount = argumentCount;
+            this.cached = cached;
+            commit();
+        }
+    }
+}
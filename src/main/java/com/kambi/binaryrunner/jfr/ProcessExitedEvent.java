@@ -0,0 +1,50 @@
+package com.kambi.binaryrunner.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kambi.binaryrunner.ProcessExited")
+@Label("Process Exited")
+@Description("the binary file has been finished")
+@Category({ "Binary Runner", "Execution" })
+@StackTrace(false)
+public class ProcessExitedEvent extends jdk.jfr.Event {
+    @Label("Script")
+    String script;
+
+    @Label("Argument Count")
+    int argumentCount;
+
+    @Label("Pid")
+    long pid;
+
+    @Label("Exit Code")
+    int exitCode;
+
+    @Label("Output Size")
+    @DataAmount
+    long outputBytes;
+
+    // begun before the process is started, so the duration of the event is the runtime
+    public static ProcessExitedEvent start() {
+        var event = new ProcessExitedEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String script, int argumentCount, long pid, int exitCode, long outputBytes) {
+        end();
+        if (shouldCommit()) {
+            this.script = script;
+            this.argumentCount = argumentCount;
+            this.pid = pid;
+            this.exitCode = exitCode;
+            this.outputBytes = outputBytes;
+            commit();
+        }
+    }
+}
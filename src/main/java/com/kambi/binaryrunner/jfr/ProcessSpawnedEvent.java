@@ -0,0 +1,45 @@
+package com.kambi.binaryrunner.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kambi.binaryrunner.ProcessSpawned")
+@Label("Process Spawned")
+@Description("the process of the binary file has been started")
+@Category({ "Binary Runner", "Execution" })
+@StackTrace(false)
+public class ProcessSpawnedEvent extends jdk.jfr.Event {
+    @Label("Script")
+    String script;
+
+    @Label("Argument Count")
+    int argumentCount;
+
+    @Label("Pid")
+    long pid;
+
+    @Label("Shell Worker")
+    @Description("the binary file has been sent to a pre started shell worker")
+    boolean worker;
+
+    // begun before the process is started, so the duration of the event is the spawn time
+    public static ProcessSpawnedEvent start() {
+        var event = new ProcessSpawnedEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String script, int argumentCount, long pid, boolean worker) {
+        end();
+        if (shouldCommit()) {
+            this.script = script;
+            this.argumentCount = argumentCount;
+            this.pid = pid;
+            this.worker = worker;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.kambi.binaryrunner.jfr;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kambi.binaryrunner.RequestReceived")
+@Label("Request Received")
+@Description("a request for running binary files has been received by the api")
+@Category({ "Binary Runner", "Execution" })
+@StackTrace(false)
+public class RequestReceivedEvent extends jdk.jfr.Event {
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Script")
+    String script;
+
+    @Label("Argument Count")
+    int argumentCount;
+
+    @Label("Client")
+    String client;
+
+    // the script is the file name of the binary file, without its path
+    public static void emit(String endpoint, String binaryFile, List<String> arguments, String client) {
+        var event = new RequestReceivedEvent();
+        if (event.shouldCommit()) {
+            var fileName = binaryFile == null ? null : Paths.get(binaryFile.trim()).getFileName();
+            event.endpoint = endpoint;
+            event.script = fileName == null ? binaryFile : fileName.toString();
+            event.argumentCount = arguments == null ? 0 : arguments.size();
+            event.client = client;
+            event.commit();
+        }
+    }
+}
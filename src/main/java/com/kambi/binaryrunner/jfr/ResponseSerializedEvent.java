@@ -0,0 +1,40 @@
+package com.kambi.binaryrunner.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kambi.binaryrunner.ResponseSerialized")
+@Label("Response Serialized")
+@Description("the response has been written to the client")
+@Category({ "Binary Runner", "Execution" })
+@StackTrace(false)
+public class ResponseSerializedEvent extends jdk.jfr.Event {
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Status")
+    int status;
+
+    @Label("Output Lines")
+    int outputLines;
+
+    // begun before the body is handed to its message converter, ended when the response is completed
+    public static ResponseSerializedEvent start() {
+        var event = new ResponseSerializedEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String endpoint, int status, int outputLines) {
+        end();
+        if (shouldCommit()) {
+            this.endpoint = endpoint;
+            this.status = status;
+            this.outputLines = outputLines;
+            commit();
+        }
+    }
+}
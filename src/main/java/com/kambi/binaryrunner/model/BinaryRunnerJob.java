@@ -0,0 +1,207 @@
+package com.kambi.binaryrunner.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+
+/*
+ * state of a binary file which is executed in the background.
+ * the output is kept line by line so it can be fetched page by page while the
+ * binary file is still running, all state transitions are synchronized on the job.
+ * at most maxOutputBytes of the output is kept like the output of the other
+ * endpoints: HEAD keeps the first lines, TAIL the last ones and HEAD_TAIL half
+ * of each. the lines keep their position in the whole output, so the dropped
+ * ones are skipped while paging
+ */
+public class BinaryRunnerJob {
+    @Getter
+    private final String id;
+    @Getter
+    private final String binaryFile;
+    @Getter
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private JobStatus status = JobStatus.QUEUED;
+    private Integer exitCode;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long finishedAtMillis;
+
+    private final List<String> headLines = new ArrayList<>();
+    private final ArrayDeque<String> tailLines = new ArrayDeque<>();
+    private final long headCapacity;
+    private final long tailCapacity;
+    private long headBytes;
+    private long tailBytes;
+    private boolean headFull;
+    private int droppedLines;
+    private int outputLines;
+    private final Consumer<Process> processDestroyer;
+    private Process process;
+    private Future<?> execution;
+    private Future<?> watchdog;
+
+    public BinaryRunnerJob(String id, String binaryFile, Consumer<Process> processDestroyer, int maxOutputBytes,
+            TruncationMode truncationMode) {
+        this.id = id;
+        this.binaryFile = binaryFile;
+        this.processDestroyer = processDestroyer;
+        this.headCapacity = switch (truncationMode) {
+            case HEAD -> maxOutputBytes;
+            case TAIL -> 0;
+            case HEAD_TAIL -> maxOutputBytes / 2;
+        };
+        this.tailCapacity = maxOutputBytes - headCapacity;
+    }
+
+    public synchronized JobStatus getStatus() {
+        return status;
+    }
+
+    public synchronized Integer getExitCode() {
+        return exitCode;
+    }
+
+    public synchronized LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public synchronized LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized void appendOutput(String line) {
+        outputLines++;
+        // the line and its line break
+        long size = line.getBytes(StandardCharsets.UTF_8).length + 1;
+        if (!headFull && headBytes + size <= headCapacity) {
+            headLines.add(line);
+            headBytes += size;
+            return;
+        }
+        headFull = true;
+        if (size > tailCapacity) {
+            droppedLines++;
+            return;
+        }
+        tailLines.addLast(line);
+        tailBytes += size;
+        while (tailBytes > tailCapacity) {
+            tailBytes -= tailLines.removeFirst().getBytes(StandardCharsets.UTF_8).length + 1;
+            droppedLines++;
+        }
+    }
+
+    // number of the lines of the whole output, including the dropped ones
+    public synchronized int getOutputSize() {
+        return outputLines;
+    }
+
+    public synchronized boolean isOutputTruncated() {
+        return droppedLines > 0;
+    }
+
+    /*
+     * at most limit lines starting from the offset, the dropped lines are
+     * skipped, so nextOffset of the page should be used for the next one
+     */
+    public synchronized OutputPage getOutput(int offset, int limit) {
+        List<String> lines = new ArrayList<>();
+        int position = offset;
+        while (lines.size() < limit && position < headLines.size()) {
+            lines.add(headLines.get(position++));
+        }
+        int tailStart = headLines.size() + droppedLines;
+        if (lines.size() < limit && position < tailStart) {
+            position = Math.min(tailStart, outputLines);
+        }
+        var tail = tailLines.iterator();
+        for (int i = tailStart; tail.hasNext() && lines.size() < limit; i++) {
+            var line = tail.next();
+            if (i >= position) {
+                lines.add(line);
+                position = i + 1;
+            }
+        }
+        return new OutputPage(lines, position);
+    }
+
+    public record OutputPage(List<String> lines, int nextOffset) {
+    }
+
+    /*
+     * the task of the job in the process pool, a job stopped while it is queued
+     * cancels the task so the binary file is never started
+     */
+    public synchronized void setExecution(Future<?> execution) {
+        this.execution = execution;
+        if (status.isFinished()) {
+            execution.cancel(true);
+        }
+    }
+
+    public synchronized void setWatchdog(Future<?> watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    public synchronized void started(Process process) {
+        this.process = process;
+        if (status.isFinished()) {
+            // cancelled while it was waiting in the queue
+            destroyProcessTree();
+            return;
+        }
+        this.status = JobStatus.RUNNING;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    public synchronized void finished(int exitCode) {
+        if (status.isFinished()) {
+            return;
+        }
+        this.exitCode = exitCode;
+        this.status = exitCode == CommandExitCode.SUCCESSFUL.getExitCode() ? JobStatus.SUCCEEDED : JobStatus.FAILED;
+        markFinished();
+    }
+
+    /*
+     * stopping the job by the given reason, returns false if it has been finished before
+     */
+    public synchronized boolean stop(JobStatus reason, Integer exitCode) {
+        if (status.isFinished()) {
+            return false;
+        }
+        this.status = reason;
+        this.exitCode = exitCode;
+        markFinished();
+        if (execution != null) {
+            execution.cancel(true);
+        }
+        destroyProcessTree();
+        return true;
+    }
+
+    public synchronized boolean isExpired(long ttlMillis, long nowMillis) {
+        return status.isFinished() && finishedAtMillis + ttlMillis < nowMillis;
+    }
+
+    private void markFinished() {
+        this.finishedAt = LocalDateTime.now();
+        this.finishedAtMillis = System.currentTimeMillis();
+        if (watchdog != null) {
+            watchdog.cancel(false);
+        }
+    }
+
+    // the whole tree is destroyed, so nothing forked by the binary file is left behind
+    private void destroyProcessTree() {
+        if (process != null) {
+            processDestroyer.accept(process);
+        }
+    }
+}
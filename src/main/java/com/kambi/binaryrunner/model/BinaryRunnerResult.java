@@ -1,6 +1,9 @@
 package com.kambi.binaryrunner.model;
 
-import java.util.List;
+// usage is null if the resources of the binary file have not been sampled
+public record BinaryRunnerResult(int exitCode, CapturedOutput output, ResourceUsage usage) {
 
-public record BinaryRunnerResult(int exitCode, List<String> output) {
+    public BinaryRunnerResult(int exitCode, CapturedOutput output) {
+        this(exitCode, output, null);
+    }
 }
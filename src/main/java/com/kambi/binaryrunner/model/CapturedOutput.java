@@ -0,0 +1,41 @@
+package com.kambi.binaryrunner.model;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * raw bytes of an output stream of the binary file, totalBytes is the size of
+ * the whole output and truncated shows some part of it has not been kept.
+ * the bytes are only decoded to lines when the response is built
+ */
+public record CapturedOutput(byte[] data, long totalBytes, boolean truncated) {
+
+    public static final CapturedOutput EMPTY = new CapturedOutput(new byte[0], 0, false);
+
+    public static CapturedOutput of(List<String> lines) {
+        var data = String.join("\n", lines).getBytes(Charset.defaultCharset());
+        return new CapturedOutput(data, data.length, false);
+    }
+
+    // splitting the same way as BufferedReader.readLine(): \n, \r or \r\n
+    public String[] lines() {
+        var text = new String(data, Charset.defaultCharset());
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lines.add(text.substring(start, i));
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines.toArray(String[]::new);
+    }
+}
@@ -8,6 +8,11 @@ import org.springframework.http.HttpStatusCode;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+/*
+ * a process exits by a code between 0 and 255, the statuses of the service
+ * itself (e.g. a shed or skipped execution) are from 1000 up, so they never
+ * collide with a real exit code of a binary file
+ */
 @Getter
 @AllArgsConstructor
 public enum CommandExitCode {
@@ -16,12 +21,24 @@ public enum CommandExitCode {
     INVALID_OPTION("either the mandatory option is absent or inputted one is not correct", 2, HttpStatus.BAD_REQUEST),
     INSUFFICIENT_ACCESS_RIGHTS("Permission denied", 4, HttpStatus.FORBIDDEN),
     INACCESSIBLE_RESOURCES("missing or inaccessible file or resource", 3, HttpStatus.BAD_REQUEST),
+    VIEW_NOT_FOUND("materialized view not found or it has been removed", 1000, HttpStatus.NOT_FOUND),
+    UNKNOWN_API_KEY("the api key is missing or unknown", 1001, HttpStatus.UNAUTHORIZED),
+    CLIENT_RATE_LIMITED("too many requests have been sent by the client, please try again later", 1002, HttpStatus.TOO_MANY_REQUESTS),
+    CLIENT_QUOTA_EXCEEDED("the client is already running too many binary files, please try again later", 1003, HttpStatus.TOO_MANY_REQUESTS),
+    DEADLINE_UNREACHABLE("the binary file can not be finished before the requested timeout", 1004, HttpStatus.REQUEST_TIMEOUT),
+    HOST_OVERLOADED("the host is overloaded, please try again later", 1005, HttpStatus.SERVICE_UNAVAILABLE),
+    BATCH_ITEM_SKIPPED("not executed because a previous binary file of the batch has failed", 1006, HttpStatus.FAILED_DEPENDENCY),
+    JOB_NOT_FOUND("job not found or it has been expired", 1007, HttpStatus.NOT_FOUND),
+    VIEW_NOT_OWNED("the materialized view has been registered by another client", 1008, HttpStatus.FORBIDDEN),
+    INVALID_GREP("grep should be a valid regular expression", 1009, HttpStatus.BAD_REQUEST),
     FILE_NOT_FOUND("execution file not found", 98, HttpStatus.NOT_FOUND),
     TIMEOUT_REACHED("command execution reached the defined timeout and execution has been stopped", 99, HttpStatus.REQUEST_TIMEOUT),
     FILE_PERMISSION_DENIED("Permission denied", 13, HttpStatus.FORBIDDEN),
     COMMAND_PERMISSION_DENIED("Permission denied", 126, HttpStatus.FORBIDDEN),
     COMMAND_NOT_FOUND("Command not found-please check the command and its options or arguments", 127, HttpStatus.NOT_FOUND),    
+    CPU_LIMIT_EXCEEDED("the binary file used more cpu time than its limit and has been stopped", 152, HttpStatus.UNPROCESSABLE_ENTITY),
     NOT_COMPATIBLE_WITH_OS("input file is not compatible with os", 193, HttpStatus.BAD_REQUEST),    
+    EXECUTION_QUEUE_FULL("too many binary files are running, please try again later", 503, HttpStatus.SERVICE_UNAVAILABLE),
     INTERNAL_SERVER_ERROR("internal server error", 500, HttpStatus.INTERNAL_SERVER_ERROR); //for the rest of exit code
 
     private final String errorMessage;
@@ -0,0 +1,23 @@
+package com.kambi.binaryrunner.model;
+
+import java.util.List;
+
+/*
+ * everything needed for running a request, compiled once from it.
+ * binaryFile is the requested file without the superuser command, commands is
+ * its full path with the arguments and argv is the final command line which is
+ * run (e.g. sudo sh ...). the plan is immutable so the same one is shared by all
+ * the executions of identical requests
+ */
+public record ExecutionPlan(String binaryFile, boolean superUser, List<String> commands, List<String> argv,
+        long timeout) {
+
+    public String path() {
+        return commands.get(0);
+    }
+
+    // a process builder is mutable, so every execution gets its own one
+    public ProcessBuilder newProcessBuilder() {
+        return new ProcessBuilder(argv);
+    }
+}
@@ -0,0 +1,14 @@
+package com.kambi.binaryrunner.model;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED,
+    TIMED_OUT;
+
+    public boolean isFinished() {
+        return this != QUEUED && this != RUNNING;
+    }
+}
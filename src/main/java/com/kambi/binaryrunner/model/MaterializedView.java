@@ -0,0 +1,129 @@
+package com.kambi.binaryrunner.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+
+import lombok.Getter;
+
+/*
+ * latest result of a binary file which is run on a schedule.
+ * the last successful response is kept and served until a newer one replaces
+ * it, a failed refresh keeps the previous response. at most one refresh of a
+ * view is running at a time and all state transitions are synchronized on it
+ */
+public class MaterializedView {
+    @Getter
+    private final String id;
+    @Getter
+    private final BinaryRunnerRequest request;
+    @Getter
+    private final String client;
+    @Getter
+    private final long refreshInterval;
+    private final CompletableFuture<Void> firstRefresh = new CompletableFuture<>();
+
+    private BinaryRunnerResponse response;
+    private long refreshedAtMillis;
+    private Integer lastExitCode;
+    private long lastAttemptMillis;
+    private long lastReadMillis = System.currentTimeMillis();
+    private boolean refreshing;
+    private boolean closed;
+    private Future<?> nextRefresh;
+
+    public MaterializedView(String id, BinaryRunnerRequest request, String client, long refreshInterval) {
+        this.id = id;
+        this.request = request;
+        this.client = client;
+        this.refreshInterval = refreshInterval;
+    }
+
+    // returns false if a refresh is already running or the view has been removed
+    public synchronized boolean startRefresh() {
+        if (refreshing || closed) {
+            return false;
+        }
+        refreshing = true;
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        return true;
+    }
+
+    // response is null if the binary file has failed by the exit code
+    public synchronized void refreshed(BinaryRunnerResponse response, int exitCode, long nowMillis) {
+        if (response != null) {
+            this.response = response;
+            this.refreshedAtMillis = nowMillis;
+        }
+        this.lastExitCode = exitCode;
+        this.lastAttemptMillis = nowMillis;
+        this.refreshing = false;
+        firstRefresh.complete(null);
+    }
+
+    public synchronized void scheduleNext(Future<?> nextRefresh) {
+        if (closed) {
+            nextRefresh.cancel(false);
+            return;
+        }
+        this.nextRefresh = nextRefresh;
+    }
+
+    /*
+     * stale is measured from the last attempt, so a failing binary file is not
+     * retried by every read
+     */
+    public synchronized boolean isStale(long nowMillis) {
+        return !refreshing && !closed && lastAttemptMillis + refreshInterval < nowMillis;
+    }
+
+    public synchronized boolean isIdle(long idleTimeout, long nowMillis) {
+        return lastReadMillis + idleTimeout < nowMillis;
+    }
+
+    public synchronized Snapshot read(long nowMillis) {
+        lastReadMillis = nowMillis;
+        return new Snapshot(response, lastExitCode, response == null ? 0 : nowMillis - refreshedAtMillis);
+    }
+
+    // waiting for the first refresh of a new view, false if it is not finished in time
+    public boolean awaitFirstRefresh(long timeoutMillis) throws InterruptedException {
+        try {
+            firstRefresh.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException ex) {
+            return false;
+        }
+    }
+
+    public synchronized void close() {
+        closed = true;
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        firstRefresh.complete(null);
+    }
+
+    public synchronized Integer getLastExitCode() {
+        return lastExitCode;
+    }
+
+    public synchronized LocalDateTime getRefreshedAt() {
+        return response == null ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(refreshedAtMillis), ZoneId.systemDefault());
+    }
+
+    // age is the milliseconds passed since the response has been produced
+    public record Snapshot(BinaryRunnerResponse response, Integer exitCode, long age) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.kambi.binaryrunner.model;
+
+/*
+ * resources used by a binary file and every process forked by it, times are in
+ * milliseconds and sizes in bytes. the ones which can not be read on the os
+ * (everything except the cpu time without /proc) are null
+ */
+public record ResourceUsage(long cpuTime, Long userTime, Long systemTime, Long peakRss, Long readBytes,
+        Long writeBytes) {
+
+    // usage of the stages of a pipeline, running at the same time
+    public ResourceUsage plus(ResourceUsage other) {
+        if (other == null) {
+            return this;
+        }
+        return new ResourceUsage(cpuTime + other.cpuTime, sum(userTime, other.userTime),
+                sum(systemTime, other.systemTime), sum(peakRss, other.peakRss), sum(readBytes, other.readBytes),
+                sum(writeBytes, other.writeBytes));
+    }
+
+    private static Long sum(Long first, Long second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return first + second;
+    }
+}
@@ -0,0 +1,10 @@
+package com.kambi.binaryrunner.model;
+
+/*
+ * which part of an output is kept when it is bigger than the allowed size
+ */
+public enum TruncationMode {
+    HEAD,
+    TAIL,
+    HEAD_TAIL
+}
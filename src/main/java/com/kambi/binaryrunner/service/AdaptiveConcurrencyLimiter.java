@@ -0,0 +1,201 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * admission control in front of the binary file executions.
+ * the limit of concurrent executions is adapted by aimd: it grows by one per
+ * window of limit executions which finished in time while the limit was used
+ * (1 / limit after each of them), and it is multiplied
+ * by the backoff ratio after a slow execution, a timeout or a full queue, and on
+ * every load sample while the host load per cpu is above the maximum. an
+ * execution is slow when it takes longer than latency tolerance times the usual
+ * runtime of its binary file, or the latency threshold while its runtime is not
+ * known yet, so a long but healthy report doesn't shrink the limit of quick
+ * ones. executions above the limit are rejected right away instead of waiting
+ * for their timeout
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+    private static final Path LOAD_AVERAGE = Path.of("/proc/loadavg");
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThreshold;
+    private final double latencyTolerance;
+    private final double maxLoadPerCpu;
+    private final int cpus = Runtime.getRuntime().availableProcessors();
+
+    private double limit;
+    private int inflight;
+    private volatile double load;
+
+    private final Counter limitRejections;
+    private final Counter loadDecreases;
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "binary-runner-load-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AdaptiveConcurrencyLimiter(@Value("${running.limiter.enabled}") boolean enabled,
+            @Value("${running.limiter.initial-limit}") int initialLimit,
+            @Value("${running.limiter.min-limit}") int minLimit,
+            @Value("${running.limiter.max-limit}") int maxLimit,
+            @Value("${running.limiter.backoff-ratio}") double backoffRatio,
+            @Value("${running.limiter.latency-threshold}") long latencyThreshold,
+            @Value("${running.limiter.latency-tolerance}") double latencyTolerance,
+            @Value("${running.limiter.max-load-per-cpu}") double maxLoadPerCpu,
+            @Value("${running.limiter.load-interval}") long loadInterval,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThreshold = latencyThreshold;
+        this.latencyTolerance = latencyTolerance;
+        this.maxLoadPerCpu = maxLoadPerCpu;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        Gauge.builder("binary.runner.limiter.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("current limit of concurrent binary file executions")
+                .register(meterRegistry);
+        Gauge.builder("binary.runner.limiter.inflight", this, AdaptiveConcurrencyLimiter::getInflight)
+                .description("number of admitted binary file executions")
+                .register(meterRegistry);
+        Gauge.builder("binary.runner.limiter.load", this, AdaptiveConcurrencyLimiter::getLoadPerCpu)
+                .description("one minute load average of the host per cpu")
+                .register(meterRegistry);
+        this.limitRejections = Counter.builder("binary.runner.limiter.rejected")
+                .description("number of binary file executions rejected by the concurrency limit")
+                .register(meterRegistry);
+        this.loadDecreases = Counter.builder("binary.runner.limiter.load.decreased")
+                .description("number of times the limit has been decreased because of the host load")
+                .register(meterRegistry);
+
+        if (enabled) {
+            sampler.scheduleWithFixedDelay(this::sampleLoad, 0, loadInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // admitting an execution, every admitted one must be released
+    public synchronized boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        if (inflight >= (int) limit) {
+            limitRejections.increment();
+            log.warn("execution has been shed, limit: {} inflight: {} load: {}", (int) limit, inflight, load);
+            return false;
+        }
+        inflight++;
+        return true;
+    }
+
+    public void release(long latencyMillis, boolean congested) {
+        release(latencyMillis, congested, false);
+    }
+
+    public void release(long latencyMillis, boolean congested, boolean skipped) {
+        release(latencyMillis, 0, congested, skipped);
+    }
+
+    /*
+     * the execution has been finished after the given time, baseline is the usual
+     * runtime of its binary file before it has been started (0 if it is not
+     * known). congested means it has been timed out or rejected by the process
+     * pool, skipped means it has been rejected before running so the limit is
+     * left as it is
+     */
+    public synchronized void release(long latencyMillis, long baselineMillis, boolean congested, boolean skipped) {
+        if (!enabled) {
+            return;
+        }
+        boolean utilized = inflight >= limit / 2;
+        inflight--;
+        if (skipped) {
+            return;
+        }
+        if (congested || isSlow(latencyMillis, baselineMillis)) {
+            decrease();
+        } else if (utilized) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+
+    public double getLoadPerCpu() {
+        return load / cpus;
+    }
+
+    public double getRejectedCount() {
+        return limitRejections.count();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private boolean isSlow(long latencyMillis, long baselineMillis) {
+        if (baselineMillis <= 0) {
+            return latencyMillis > latencyThreshold;
+        }
+        return latencyMillis > baselineMillis * latencyTolerance;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    private void sampleLoad() {
+        load = readLoadAverage();
+        if (getLoadPerCpu() > maxLoadPerCpu) {
+            synchronized (this) {
+                decrease();
+            }
+            loadDecreases.increment();
+        }
+    }
+
+    private static double readLoadAverage() {
+        try {
+            if (Files.isReadable(LOAD_AVERAGE)) {
+                return Double.parseDouble(Files.readString(LOAD_AVERAGE).split(" ")[0]);
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("load average could not be read {}", ex.getMessage());
+        }
+        // not linux, negative when it is not available at all
+        return Math.max(0, ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+}
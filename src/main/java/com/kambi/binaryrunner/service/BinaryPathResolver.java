@@ -0,0 +1,169 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/*
+ * finding the full path of the binary files without probing the file system on
+ * every request.
+ * the search roots (working and user home directory) are computed once, found
+ * and not found results are cached for a short time, and the search roots plus
+ * the configured script directories are watched so a created, changed or
+ * deleted file invalidates its cached result right away. at most maxEntries
+ * results are kept, the expired ones and then the ones expiring first are
+ * evicted to make room for a new one
+ */
+@Slf4j
+@Component
+public class BinaryPathResolver {
+    private static final String SLASH = "/";
+
+    private final List<String> searchRoots;
+    private final long foundTtl;
+    private final long notFoundTtl;
+    private final int maxEntries;
+    private final Map<String, Resolution> resolutions = new ConcurrentHashMap<>();
+    private final WatchService watchService;
+
+    public BinaryPathResolver(@Value("${running.path.cache-ttl}") long foundTtl,
+            @Value("${running.path.not-found-cache-ttl}") long notFoundTtl,
+            @Value("${running.path.max-entries}") int maxEntries,
+            @Value("${running.path.watch-dirs}") List<String> watchDirs) {
+        this.foundTtl = foundTtl;
+        this.notFoundTtl = notFoundTtl;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.searchRoots = List.of(Paths.get("").toAbsolutePath().toString() + SLASH,
+                System.getProperty("user.home") + SLASH);
+
+        Set<String> dirs = new LinkedHashSet<>(searchRoots);
+        dirs.addAll(watchDirs);
+        this.watchService = watch(dirs);
+    }
+
+    /*
+     * bringing back the full path of the binary file or null if it doesn't exist.
+     * if fileName has no path, the current working directory and the user's home
+     * directory are checked respectively
+     */
+    public String resolve(String binaryFile) {
+        long now = System.currentTimeMillis();
+        var cached = resolutions.get(binaryFile);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.path();
+        }
+
+        var path = lookup(binaryFile);
+        if (resolutions.size() >= maxEntries) {
+            evict(now);
+        }
+        resolutions.put(binaryFile, new Resolution(path, now + (path == null ? notFoundTtl : foundTtl)));
+        return path;
+    }
+
+    /*
+     * only on a miss while the cache is full, instead of dropping every cached
+     * result and probing the file system for all of them again
+     */
+    private void evict(long now) {
+        resolutions.values().removeIf(resolution -> resolution.expiresAt() <= now);
+        while (resolutions.size() >= maxEntries) {
+            var soonest = resolutions.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().expiresAt()));
+            if (soonest.isEmpty()) {
+                return;
+            }
+            resolutions.remove(soonest.get().getKey(), soonest.get().getValue());
+        }
+    }
+
+    private String lookup(String binaryFile) {
+        if (new File(binaryFile).exists()) {
+            log.info("file has been found {}", binaryFile);
+            return binaryFile;
+        } else if (binaryFile.contains(SLASH)) { // inputed file contain invalid path
+            return null;
+        }
+
+        for (String path : searchRoots) {
+            if (new File(path + binaryFile).exists()) {
+                log.info("full path of excutable file is {}{}", path, binaryFile);
+                return path + binaryFile;
+            }
+        }
+        return null;
+    }
+
+    private WatchService watch(Set<String> dirs) {
+        try {
+            var service = FileSystems.getDefault().newWatchService();
+            List<String> watched = new ArrayList<>();
+            for (String dir : dirs) {
+                var path = Paths.get(dir).toAbsolutePath().normalize();
+                if (Files.isDirectory(path)) {
+                    path.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                    watched.add(path.toString());
+                }
+            }
+            log.info("binary file directories {} are watched for changes", watched);
+
+            var thread = new Thread(() -> invalidateOnChange(service), "binary-path-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            return service;
+        } catch (IOException ex) {
+            // without watching, the cached results are only refreshed by their ttl
+            log.warn("binary file directories can not be watched {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private void invalidateOnChange(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                var dir = (Path) key.watchable();
+                key.pollEvents();
+                // a new file may turn a not found result into a found one
+                resolutions.entrySet().removeIf(entry -> entry.getValue().path() == null
+                        || dir.equals(Paths.get(entry.getValue().path()).toAbsolutePath().normalize().getParent()));
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            log.info("watching binary file directories has been stopped");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private record Resolution(String path, long expiresAt) {
+    }
+}
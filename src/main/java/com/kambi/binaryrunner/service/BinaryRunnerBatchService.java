@@ -0,0 +1,111 @@
+package com.kambi.binaryrunner.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.kambi.binaryrunner.dto.BinaryRunnerBatchRequest;
+import com.kambi.binaryrunner.dto.BinaryRunnerBatchResponse;
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.model.CommandExitCode;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.BATCH_ITEM_SKIPPED;
+import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
+
+/*
+ * running a list of binary files in parallel.
+ * the request thread keeps a window of at most `concurrency` binary files on
+ * the shared process pool, when the window is full it waits for the oldest one,
+ * so no extra thread is created for a batch. every item goes through the same
+ * validation, result cache, adaptive limit and exit code mapping as a single
+ * request
+ */
+@Slf4j
+@Service
+public class BinaryRunnerBatchService {
+    private final BinaryRunnerService binaryRunnerService;
+    private final ClientQuotas clientQuotas;
+    private final int maxConcurrency;
+
+    public BinaryRunnerBatchService(BinaryRunnerService binaryRunnerService, ClientQuotas clientQuotas,
+            @Value("${running.batch.max-concurrency}") int maxConcurrency) {
+        this.binaryRunnerService = binaryRunnerService;
+        this.clientQuotas = clientQuotas;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    // the window never exceeds the running slots of the client
+    public BinaryRunnerBatchResponse binaryRunnerBatch(BinaryRunnerBatchRequest batchRequest, String client) {
+        var requests = batchRequest.getRequests();
+        var concurrency = Math.min(clientQuotas.getMaxConcurrent(), batchRequest.getConcurrency() == null
+                ? maxConcurrency
+                : Math.min(batchRequest.getConcurrency(), maxConcurrency));
+
+        var results = new BinaryRunnerBatchResponse.Item[requests.size()];
+        Deque<PendingItem> window = new ArrayDeque<>();
+        var failed = false;
+
+        for (int index = 0; index < requests.size(); index++) {
+            if (window.size() >= concurrency) {
+                failed |= complete(window.poll(), results);
+            }
+            if (failed && batchRequest.isFailFast()) {
+                results[index] = errorItem(index, BATCH_ITEM_SKIPPED);
+                continue;
+            }
+            try {
+                window.add(start(index, requests.get(index), client));
+            } catch (BinaryRunningException ex) {
+                results[index] = errorItem(index, exitCodeOf(ex));
+                failed = true;
+            }
+        }
+        while (!window.isEmpty()) {
+            complete(window.poll(), results);
+        }
+
+        return new BinaryRunnerBatchResponse(LocalDateTime.now(), Arrays.asList(results));
+    }
+
+    // the item is served from the result cache or takes a permit of the adaptive limit, like a single request
+    private PendingItem start(int index, BinaryRunnerRequest request, String client)
+            throws BinaryRunningException {
+        return new PendingItem(index, binaryRunnerService.startExecution(request, client));
+    }
+
+    // waiting for the item and storing its result, returns true if it has been failed
+    private boolean complete(PendingItem item, BinaryRunnerBatchResponse.Item[] results) {
+        var result = binaryRunnerService.completeExecution(item.execution());
+        try {
+            var response = binaryRunnerService.toResponse(result);
+            results[item.index()] = new BinaryRunnerBatchResponse.Item(item.index(), SUCCESSFUL.getHttpstatus().value(),
+                    response);
+            return false;
+        } catch (BinaryRunningException ex) {
+            results[item.index()] = errorItem(item.index(), exitCodeOf(ex));
+            return true;
+        }
+    }
+
+    private BinaryRunnerBatchResponse.Item errorItem(int index, CommandExitCode exitCode) {
+        log.error("binary file {} of the batch has been failed\n {}", index, exitCode.getErrorMessage());
+        return new BinaryRunnerBatchResponse.Item(index, exitCode.getHttpstatus().value(),
+                BinaryRunnerResponse.runningError(exitCode));
+    }
+
+    private CommandExitCode exitCodeOf(BinaryRunningException ex) {
+        return CommandExitCode.getCommandExitCodeByValue(Integer.valueOf(ex.getMessage()));
+    }
+
+    private record PendingItem(int index, PendingExecution execution) {
+    }
+}
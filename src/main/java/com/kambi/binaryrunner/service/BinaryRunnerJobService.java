@@ -0,0 +1,173 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.model.BinaryRunnerJob;
+import com.kambi.binaryrunner.model.JobStatus;
+import com.kambi.binaryrunner.model.TruncationMode;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.CLIENT_QUOTA_EXCEEDED;
+import static com.kambi.binaryrunner.model.CommandExitCode.EXECUTION_QUEUE_FULL;
+import static com.kambi.binaryrunner.model.CommandExitCode.HOST_OVERLOADED;
+import static com.kambi.binaryrunner.model.CommandExitCode.INTERNAL_SERVER_ERROR;
+import static com.kambi.binaryrunner.model.CommandExitCode.JOB_NOT_FOUND;
+import static com.kambi.binaryrunner.model.CommandExitCode.TIMEOUT_REACHED;
+
+/*
+ * running binary files in the background, the caller receives a job id right
+ * away and polls the status and the output of the job.
+ * jobs are kept in memory, at most maxJobs of them, and finished jobs are
+ * evicted after their time to live
+ */
+@Slf4j
+@Service
+public class BinaryRunnerJobService {
+    private final BinaryRunnerService binaryRunnerService;
+    private final ProcessExecutionScheduler processExecutionScheduler;
+    private final ProcessRegistry processRegistry;
+    private final ClientQuotas clientQuotas;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final long jobTimeout;
+    private final int maxJobs;
+    private final long jobTtl;
+    private final int maxOutputBytes;
+    private final TruncationMode truncationMode;
+
+    private final Map<String, BinaryRunnerJob> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "binary-runner-job-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BinaryRunnerJobService(BinaryRunnerService binaryRunnerService,
+            ProcessExecutionScheduler processExecutionScheduler,
+            ProcessRegistry processRegistry,
+            ClientQuotas clientQuotas,
+            AdaptiveConcurrencyLimiter concurrencyLimiter,
+            @Value("${running.job.timeout}") long jobTimeout,
+            @Value("${running.job.max-jobs}") int maxJobs,
+            @Value("${running.job.ttl}") long jobTtl,
+            @Value("${running.output.max-bytes}") int maxOutputBytes,
+            @Value("${running.output.truncation}") TruncationMode truncationMode) {
+        this.binaryRunnerService = binaryRunnerService;
+        this.processExecutionScheduler = processExecutionScheduler;
+        this.processRegistry = processRegistry;
+        this.clientQuotas = clientQuotas;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.jobTimeout = jobTimeout;
+        this.maxJobs = maxJobs;
+        this.jobTtl = jobTtl;
+        this.maxOutputBytes = maxOutputBytes;
+        this.truncationMode = truncationMode;
+    }
+
+    /*
+     * the job holds a running slot of the client and a permit of the adaptive
+     * limit until it is finished. a job runs far longer than a request, so its
+     * latency is not used to adapt the limit
+     */
+    public BinaryRunnerJob submit(BinaryRunnerRequest request, String client) throws BinaryRunningException {
+        var plan = binaryRunnerService.prepareExecution(request);
+
+        evictExpiredJobs();
+        if (jobs.size() >= maxJobs) {
+            log.warn("job has been rejected, {} jobs are kept", jobs.size());
+            throw new BinaryRunningException(String.valueOf(EXECUTION_QUEUE_FULL.getExitCode()));
+        }
+
+        if (!concurrencyLimiter.tryAcquire()) {
+            throw new BinaryRunningException(String.valueOf(HOST_OVERLOADED.getExitCode()));
+        }
+        if (!clientQuotas.tryAcquireSlot(client)) {
+            concurrencyLimiter.release(0, false, true);
+            throw new BinaryRunningException(String.valueOf(CLIENT_QUOTA_EXCEEDED.getExitCode()));
+        }
+        var job = new BinaryRunnerJob(UUID.randomUUID().toString(), request.getBinaryFile(),
+                processRegistry::destroyTree, maxOutputBytes, truncationMode);
+        var task = binaryRunnerService.createProcessTask(plan.newProcessBuilder(),
+                binaryRunnerService.filterOutput(request, binaryRunnerService.newLineSink(job::appendOutput)),
+                OutputStream.nullOutputStream(), job::started);
+        jobs.put(job.getId(), job);
+        try {
+            job.setExecution(processExecutionScheduler.submit(() -> {
+                try {
+                    job.finished(task.call());
+                } catch (Exception ex) {
+                    log.error("job {} has been failed", job.getId(), ex);
+                    job.finished(INTERNAL_SERVER_ERROR.getExitCode());
+                }
+                return null;
+            }, Long.MAX_VALUE, client, clientQuotas.weightOf(client), () -> {
+                clientQuotas.releaseSlot(client);
+                concurrencyLimiter.release(0, false, true);
+            }));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.getId());
+            throw new BinaryRunningException(String.valueOf(EXECUTION_QUEUE_FULL.getExitCode()));
+        }
+
+        job.setWatchdog(watchdog.schedule(() -> {
+            if (job.stop(JobStatus.TIMED_OUT, TIMEOUT_REACHED.getExitCode())) {
+                log.error("job {} reached the timeout and has been stopped", job.getId());
+            }
+        }, jobTimeout, TimeUnit.MILLISECONDS));
+
+        log.info("job {} has been submitted for {}", job.getId(), request.toString());
+        return job;
+    }
+
+    public BinaryRunnerJob getJob(String id) throws BinaryRunningException {
+        var job = jobs.get(id);
+        if (job == null || job.isExpired(jobTtl, System.currentTimeMillis())) {
+            throw new BinaryRunningException(String.valueOf(JOB_NOT_FOUND.getExitCode()));
+        }
+        return job;
+    }
+
+    public BinaryRunnerJob.OutputPage getOutput(String id, int offset, int limit) throws BinaryRunningException {
+        return getJob(id).getOutput(offset, limit);
+    }
+
+    /*
+     * cancelling a queued or running job and destroying its process tree, the
+     * cancelled task still gives back the slot of the client and the permit. a
+     * finished job is just removed
+     */
+    public BinaryRunnerJob cancel(String id) throws BinaryRunningException {
+        var job = getJob(id);
+        if (job.stop(JobStatus.CANCELLED, null)) {
+            log.info("job {} has been cancelled", id);
+        } else {
+            jobs.remove(id);
+            log.info("job {} has been removed", id);
+        }
+        return job;
+    }
+
+    private void evictExpiredJobs() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isExpired(jobTtl, now));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        jobs.values().forEach(job -> job.stop(JobStatus.CANCELLED, null));
+    }
+}
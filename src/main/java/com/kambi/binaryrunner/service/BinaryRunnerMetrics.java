@@ -0,0 +1,235 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kambi.binaryrunner.jfr.FirstOutputEvent;
+import com.kambi.binaryrunner.model.CommandExitCode;
+import com.kambi.binaryrunner.model.ResourceUsage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * recording every phase of the execution pipeline per binary file.
+ * the script tag is the file name of the binary file, at most maxScripts
+ * different names are used as tag and the rest of them are tagged as "other",
+ * so requests for random files can not blow up the number of time series.
+ * the recent runtime of every binary file is kept as an exponentially weighted
+ * moving average, an estimation older than runtimeTtl is not trusted anymore
+ */
+@Component
+public class BinaryRunnerMetrics {
+    private static final String OTHER_SCRIPT = "other";
+    private static final double[] PERCENTILES = new double[] { 0.5, 0.9, 0.99 };
+    private static final double RUNTIME_WEIGHT = 0.2;
+
+    private final MeterRegistry meterRegistry;
+    private final int maxScripts;
+    private final Set<String> scripts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, RuntimeEstimation> runtimes = new ConcurrentHashMap<>();
+    private final long runtimeTtl;
+
+    public BinaryRunnerMetrics(MeterRegistry meterRegistry, @Value("${running.metrics.max-scripts}") int maxScripts,
+            @Value("${running.metrics.runtime-ttl}") long runtimeTtl) {
+        this.meterRegistry = meterRegistry;
+        this.maxScripts = maxScripts;
+        this.runtimeTtl = runtimeTtl;
+        Gauge.builder("binary.runner.process.inflight", inFlight, AtomicInteger::get)
+                .description("number of binary file processes that are alive")
+                .register(meterRegistry);
+    }
+
+    // the binary file is the first part of the command with the extension of the os
+    public String scriptOf(List<String> commands) {
+        return commands.stream()
+                .filter(command -> command.endsWith(".sh") || command.endsWith(".bat"))
+                .findFirst()
+                .map(this::scriptTag)
+                .orElse(OTHER_SCRIPT);
+    }
+
+    // the arguments are the parts of the command after the binary file
+    public int argumentCountOf(List<String> commands) {
+        for (int i = 0; i < commands.size(); i++) {
+            if (commands.get(i).endsWith(".sh") || commands.get(i).endsWith(".bat")) {
+                return commands.size() - i - 1;
+            }
+        }
+        return Math.max(commands.size() - 1, 0);
+    }
+
+    public String scriptTag(String binaryFile) {
+        var fileName = Paths.get(binaryFile).getFileName();
+        var script = fileName == null ? binaryFile : fileName.toString();
+        if (scripts.contains(script)) {
+            return script;
+        }
+        if (scripts.size() < maxScripts && scripts.add(script)) {
+            return script;
+        }
+        return OTHER_SCRIPT;
+    }
+
+    public void recordPathResolution(String script, long startNanos) {
+        timer("binary.runner.path.resolution", "time for validating and finding the binary file", script)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSpawn(String script, long startNanos) {
+        inFlight.incrementAndGet();
+        timer("binary.runner.process.spawn", "time for starting the process", script)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordExit(String script, long startNanos, int exitCode) {
+        inFlight.decrementAndGet();
+        long runtimeNanos = System.nanoTime() - startNanos;
+        if (!OTHER_SCRIPT.equals(script)) {
+            var current = new RuntimeEstimation(TimeUnit.NANOSECONDS.toMillis(runtimeNanos), System.currentTimeMillis());
+            runtimes.merge(script, current, (previous, sample) -> new RuntimeEstimation(
+                    previous.millis() * (1 - RUNTIME_WEIGHT) + sample.millis() * RUNTIME_WEIGHT, sample.updatedAt()));
+        }
+        Timer.builder("binary.runner.process.runtime")
+                .description("time from starting the process until its exit")
+                .tag("script", script)
+                .tag("exitCode", CommandExitCode.getCommandExitCodeByValue(exitCode).name())
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(runtimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // the resources used by the process tree, the ones which are not known are skipped
+    public void recordUsage(String script, ResourceUsage usage) {
+        if (usage == null) {
+            return;
+        }
+        summary("binary.runner.process.cpu.time", "cpu time used by the process tree", "milliseconds", script)
+                .record(usage.cpuTime());
+        if (usage.peakRss() != null) {
+            summary("binary.runner.process.peak.rss", "highest resident memory of the process tree", "bytes", script)
+                    .record(usage.peakRss());
+        }
+        if (usage.readBytes() != null) {
+            summary("binary.runner.process.read.bytes", "bytes read from the storage by the process tree", "bytes",
+                    script).record(usage.readBytes());
+        }
+        if (usage.writeBytes() != null) {
+            summary("binary.runner.process.write.bytes", "bytes written to the storage by the process tree", "bytes",
+                    script).record(usage.writeBytes());
+        }
+    }
+
+    // the expected runtime of the binary file in milliseconds, 0 if it is not known
+    public long expectedRuntime(String script) {
+        var estimation = runtimes.get(script);
+        if (estimation == null || estimation.updatedAt() + runtimeTtl < System.currentTimeMillis()) {
+            return 0;
+        }
+        return (long) estimation.millis();
+    }
+
+    public void recordDeadlineRejection(String script) {
+        Counter.builder("binary.runner.deadline.rejected")
+                .description("number of binary files rejected because they can not be finished before their deadline")
+                .tag("script", script)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /*
+     * wrapping the output of the process for recording the time to its first
+     * byte and its size
+     */
+    public MeteredOutputStream meter(OutputStream outputStream, String script, long startNanos) {
+        return new MeteredOutputStream(outputStream, script, startNanos);
+    }
+
+    public class MeteredOutputStream extends OutputStream {
+        private final OutputStream outputStream;
+        private final String script;
+        private final long startNanos;
+        private final FirstOutputEvent firstOutputEvent = FirstOutputEvent.start();
+        private long bytes;
+
+        private MeteredOutputStream(OutputStream outputStream, String script, long startNanos) {
+            this.outputStream = outputStream;
+            this.script = script;
+            this.startNanos = startNanos;
+        }
+
+        // number of the bytes written so far
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            if (bytes == 0 && length > 0) {
+                timer("binary.runner.process.first.output", "time from starting the process until its first output byte", script)
+                        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                firstOutputEvent.finish(script);
+            }
+            bytes += length;
+            outputStream.write(data, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            DistributionSummary.builder("binary.runner.process.output.bytes")
+                    .description("size of the standard output of the process")
+                    .baseUnit("bytes")
+                    .tag("script", script)
+                    .publishPercentiles(PERCENTILES)
+                    .register(meterRegistry)
+                    .record(bytes);
+            outputStream.close();
+        }
+    }
+
+    private Timer timer(String name, String description, String script) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("script", script)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary summary(String name, String description, String baseUnit, String script) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tag("script", script)
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry);
+    }
+
+    private record RuntimeEstimation(double millis, long updatedAt) {
+    }
+}
@@ -0,0 +1,201 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kambi.binaryrunner.model.BinaryRunnerResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
+
+/*
+ * caching the successful results of idempotent binary files.
+ * the key is the full command and the modification time and size of the binary
+ * file, so changing the file invalidates its results. entries live for ttl
+ * milliseconds, at most maxEntries of them are kept (least recently used is
+ * evicted first) and concurrent identical requests share one execution
+ */
+@Slf4j
+@Component
+public class BinaryRunnerResultCache {
+    private final boolean enabled;
+    private final Set<String> scripts;
+    private final long ttl;
+
+    private final Map<CacheKey, CacheEntry> entries;
+    private final Map<CacheKey, CompletableFuture<BinaryRunnerResult>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter sharedCounter;
+
+    public BinaryRunnerResultCache(@Value("${running.cache.enabled}") boolean enabled,
+            @Value("${running.cache.scripts}") Set<String> scripts,
+            @Value("${running.cache.ttl}") long ttl,
+            @Value("${running.cache.max-entries}") int maxEntries,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.scripts = scripts;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.hitCounter = counter(meterRegistry, "hit");
+        this.missCounter = counter(meterRegistry, "miss");
+        this.sharedCounter = counter(meterRegistry, "shared");
+        Gauge.builder("binary.runner.cache.size", this, cache -> cache.size())
+                .description("number of cached binary file results")
+                .register(meterRegistry);
+    }
+
+    /*
+     * a binary file is cached if the cache is enabled and either it is in the
+     * allowed scripts (by its name or full path) or the request asks for it
+     */
+    public boolean isCacheable(String binaryFile, Boolean requested) {
+        if (!enabled) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(requested)) {
+            return true;
+        }
+        var fileName = Paths.get(binaryFile).getFileName();
+        return scripts.contains(binaryFile) || (fileName != null && scripts.contains(fileName.toString()));
+    }
+
+    public BinaryRunnerResult get(boolean runBySuperUser, List<String> commands, Supplier<BinaryRunnerResult> loader) {
+        var key = createKey(runBySuperUser, commands);
+        if (key == null) {
+            return loader.get();
+        }
+
+        var cached = lookup(key);
+        if (cached != null) {
+            hitCounter.increment();
+            return cached;
+        }
+
+        var flight = new CompletableFuture<BinaryRunnerResult>();
+        var running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            // the same command is running right now, wait for its result
+            sharedCounter.increment();
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+            }
+        }
+
+        try {
+            // the previous flight may have stored its result and left after the lookup
+            cached = lookup(key);
+            if (cached != null) {
+                hitCounter.increment();
+                flight.complete(cached);
+                return cached;
+            }
+            missCounter.increment();
+            var result = loader.get();
+            if (result.exitCode() == SUCCESSFUL.getExitCode()) {
+                store(key, result);
+            }
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /*
+     * the cached result of the command without running it, null if it is not
+     * cached. used by the callers which run the command by themselves and store
+     * its result by put
+     */
+    public BinaryRunnerResult getIfPresent(boolean runBySuperUser, List<String> commands) {
+        var key = createKey(runBySuperUser, commands);
+        var cached = key == null ? null : lookup(key);
+        if (cached != null) {
+            hitCounter.increment();
+        } else {
+            missCounter.increment();
+        }
+        return cached;
+    }
+
+    // only a successful result is stored
+    public void put(boolean runBySuperUser, List<String> commands, BinaryRunnerResult result) {
+        var key = createKey(runBySuperUser, commands);
+        if (key != null && result.exitCode() == SUCCESSFUL.getExitCode()) {
+            store(key, result);
+        }
+    }
+
+    private CacheKey createKey(boolean runBySuperUser, List<String> commands) {
+        try {
+            var attributes = Files.readAttributes(Path.of(commands.get(0)), BasicFileAttributes.class);
+            return new CacheKey(runBySuperUser, List.copyOf(commands), attributes.lastModifiedTime().toMillis(),
+                    attributes.size());
+        } catch (IOException ex) {
+            log.warn("file attributes of {} are not readable, it won't be cached", commands.get(0));
+            return null;
+        }
+    }
+
+    private synchronized BinaryRunnerResult lookup(CacheKey key) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.result();
+    }
+
+    private synchronized void store(CacheKey key, BinaryRunnerResult result) {
+        entries.put(key, new CacheEntry(result, System.currentTimeMillis() + ttl));
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("binary.runner.cache.requests")
+                .description("number of requests for cacheable binary files")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record CacheKey(boolean runBySuperUser, List<String> commands, long modifiedTime, long size) {
+    }
+
+    private record CacheEntry(BinaryRunnerResult result, long expiresAt) {
+    }
+}
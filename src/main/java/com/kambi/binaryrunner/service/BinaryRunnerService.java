@@ -1,215 +1,790 @@
 package com.kambi.binaryrunner.service;
 
-import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.kambi.binaryrunner.dto.BinaryRunnerPipelineRequest;
 import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+import com.kambi.binaryrunner.dto.BinaryRunnerStreamEvent;
 import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.jfr.ProcessExitedEvent;
+import com.kambi.binaryrunner.jfr.ProcessSpawnedEvent;
 import com.kambi.binaryrunner.model.BinaryRunnerResult;
+import com.kambi.binaryrunner.model.CapturedOutput;
+import com.kambi.binaryrunner.model.CommandExitCode;
+import com.kambi.binaryrunner.model.ExecutionPlan;
+import com.kambi.binaryrunner.model.ResourceUsage;
+import com.kambi.binaryrunner.model.TruncationMode;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import java.io.InputStreamReader;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 
 import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
-import static com.kambi.binaryrunner.model.CommandExitCode.FILE_NOT_FOUND;
 import static com.kambi.binaryrunner.model.CommandExitCode.TIMEOUT_REACHED;
 import static com.kambi.binaryrunner.model.CommandExitCode.INTERNAL_SERVER_ERROR;
 import static com.kambi.binaryrunner.model.CommandExitCode.FILE_PERMISSION_DENIED;
-import static com.kambi.binaryrunner.model.CommandExitCode.NOT_COMPATIBLE_WITH_OS;
-import static com.kambi.binaryrunner.service.CommandExecutorBuilderStrategy.UNIX_BASE_SUPERUSER_COMMAND;
-import static com.kambi.binaryrunner.service.CommandExecutorBuilderStrategy.WINDOWS_SUPERUSER_COMMAND;;
+import static com.kambi.binaryrunner.model.CommandExitCode.EXECUTION_QUEUE_FULL;
+import static com.kambi.binaryrunner.model.CommandExitCode.HOST_OVERLOADED;
+import static com.kambi.binaryrunner.model.CommandExitCode.DEADLINE_UNREACHABLE;
+import static com.kambi.binaryrunner.model.CommandExitCode.CLIENT_QUOTA_EXCEEDED;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BinaryRunnerService {
-    private final CommandExecutorBuilderStrategy commandExecutorBuilder;
-
-    @Value("${running.process.timeout}")
-    private long processTimeout;
-
-    private boolean runBySuperUser = false;
-
-    private static final String OS = System.getProperty("os.name").toLowerCase();
-    private static final String WINDOWS_OS = "windows";
+    private final ExecutionPlanner executionPlanner;
+    private final ProcessExecutionScheduler processExecutionScheduler;
+    private final ObjectMapper objectMapper;
+    private final BinaryRunnerResultCache resultCache;
+    private final BinaryRunnerMetrics metrics;
+    private final ProcessRegistry processRegistry;
+    private final ShellWorkerPool shellWorkerPool;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ClientQuotas clientQuotas;
+    private final ResourceUsageMonitor resourceUsageMonitor;
+    private final ExecutionJournal journal;
+
+    // 128 + SIGPIPE
+    private static final int SIGPIPE_EXIT_CODE = 141;
+
+    @Value("${running.output.max-bytes}")
+    private int maxOutputBytes;
+
+    @Value("${running.output.truncation}")
+    private TruncationMode truncationMode;
 
     /*
-     * 1.validate the binary file, if requested to run with the
-     * superuser privilege, first, we should reach the binary file path anmd name
+     * 1.validate the binary file and compile the request to an execution plan,
+     * if requested to run with the superuser privilege, it is kept by the plan,
+     * so the service holds no state of the requests.
      * strategy design pattern has been used to create command runner based on the
      * operation system
      */
     public BinaryRunnerResponse binaryRunner(BinaryRunnerRequest request) throws BinaryRunningException {
-        // reaching the binary file
-        var binaryFile = binaryFileSeperator(request.getBinaryFile().trim());
-        var isCompatible = checkFileIsCompatibleWithOs(binaryFile);
-        if(!isCompatible){
-            throw new BinaryRunningException(String.valueOf(NOT_COMPATIBLE_WITH_OS.getExitCode()));
+        return binaryRunner(request, ClientQuotas.ANONYMOUS);
+    }
+
+    public BinaryRunnerResponse binaryRunner(BinaryRunnerRequest request, String client)
+            throws BinaryRunningException {
+        return toResponse(runBinary(request, client));
+    }
+
+    /*
+     * running the binary file and bringing back its captured output as it is,
+     * without splitting it to lines. a failed binary file is thrown like the
+     * other responses
+     */
+    public CapturedOutput binaryRunnerRaw(BinaryRunnerRequest request, String client)
+            throws BinaryRunningException {
+        var binaryRunnerResult = runBinary(request, client);
+        if (binaryRunnerResult.exitCode() != SUCCESSFUL.getExitCode()) {
+            throw new BinaryRunningException(String.valueOf(binaryRunnerResult.exitCode()));
+        }
+        return binaryRunnerResult.output();
+    }
+
+    private BinaryRunnerResult runBinary(BinaryRunnerRequest request, String client) {
+        var plan = prepareExecution(request);
+        var filter = OutputFilter.of(request);
+
+        // idempotent binary files can be served from the result cache, the whole output is cached and filtered later
+        if (resultCache.isCacheable(plan.path(), request.getCache())) {
+            return applyFilter(resultCache.get(plan.superUser(), plan.commands(),
+                    () -> executeBinary(plan, OutputFilter.NONE, client)), filter, plan.timeout());
+        }
+        return executeBinary(plan, filter, client);
+    }
+
+    /*
+     * starting the binary file by the same path as runBinary without waiting for
+     * it, so many of them can run at the same time (e.g. the items of a batch). a
+     * cached result is served right away, otherwise the execution takes a permit
+     * of the adaptive limit which is released by completeExecution
+     */
+    PendingExecution startExecution(BinaryRunnerRequest request, String client) throws BinaryRunningException {
+        var plan = prepareExecution(request);
+        var filter = OutputFilter.of(request);
+        boolean cacheable = resultCache.isCacheable(plan.path(), request.getCache());
+        if (cacheable) {
+            var cached = resultCache.getIfPresent(plan.superUser(), plan.commands());
+            if (cached != null) {
+                return PendingExecution.completed(applyFilter(cached, filter, plan.timeout()));
+            }
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            return PendingExecution.completed(new BinaryRunnerResult(HOST_OVERLOADED.getExitCode(), null));
         }
-        
-        // binary file validaiton and set the command with its args
-        List<String> commands = setCommand(binaryFile, request.getArguments());
 
-        // create command runner builder based on os
-        var processBuilder = commandExecutorBuilder.commandExecuterBuilder(runBySuperUser, commands);
+        long baseline = baselineOf(plan);
+        long startTime = System.currentTimeMillis();
+        var stdout = newOutputBuffer();
+        var stderr = newOutputBuffer();
+        var usage = new AtomicReference<ResourceUsage>();
+        try {
+            var execution = submitProcess(plan, false, (cacheable ? OutputFilter.NONE : filter).wrap(stdout,
+                    maxOutputBytes), stderr, usage::set, client);
+            return new PendingExecution(null, execution, plan, cacheable ? filter : null, stdout, stderr, usage,
+                    baseline, startTime);
+        } catch (RejectedExecutionException ex) {
+            releaseLimit(baseline, startTime, EXECUTION_QUEUE_FULL.getExitCode());
+            return PendingExecution.completed(new BinaryRunnerResult(EXECUTION_QUEUE_FULL.getExitCode(), null));
+        }
+    }
+
+    // waiting for the started execution, the result of a cacheable one is cached before it is filtered
+    BinaryRunnerResult completeExecution(PendingExecution pending) {
+        if (pending.result() != null) {
+            return pending.result();
+        }
+        int exitCode = INTERNAL_SERVER_ERROR.getExitCode();
+        try {
+            exitCode = awaitProcess(pending.execution());
+        } finally {
+            releaseLimit(pending.baseline(), pending.startTime(), exitCode);
+        }
+        var result = toResult(exitCode, pending.stdout(), pending.stderr(), pending.usage().get());
+        if (pending.cacheFilter() == null) {
+            return result;
+        }
+        resultCache.put(pending.plan().superUser(), pending.plan().commands(), result);
+        return applyFilter(result, pending.cacheFilter(), pending.plan().timeout());
+    }
 
-        var binaryRunnerResult = executeBinary(processBuilder);
+    // a cached output which can not be filtered within the timeout of the request is answered like a timed out execution
+    private BinaryRunnerResult applyFilter(BinaryRunnerResult result, OutputFilter filter, long timeout) {
+        if (filter.isEmpty() || result.exitCode() != SUCCESSFUL.getExitCode()) {
+            return result;
+        }
+        try {
+            return new BinaryRunnerResult(result.exitCode(),
+                    filter.apply(result.output(), newOutputBuffer(), maxOutputBytes, timeout), result.usage());
+        } catch (OutputFilter.MatchCancelledException ex) {
+            log.error("filtering the cached output has reached the timeout {}", timeout);
+            return new BinaryRunnerResult(TIMEOUT_REACHED.getExitCode(), null);
+        }
+    }
+
+    public BinaryRunnerResponse toResponse(BinaryRunnerResult binaryRunnerResult) throws BinaryRunningException {
         var message = "the binary file execution result";
         if (binaryRunnerResult.exitCode() == SUCCESSFUL.getExitCode()) {
-            String[] details = binaryRunnerResult.output().stream().toArray(String[]::new);
-            return new BinaryRunnerResponse(LocalDateTime.now(), message, details);
+            var output = binaryRunnerResult.output();
+            // the captured bytes are decoded to lines only here
+            return new BinaryRunnerResponse(LocalDateTime.now(), message, output.lines(),
+                    output.truncated() ? Boolean.TRUE : null, binaryRunnerResult.usage());
 
         }
         throw new BinaryRunningException(String.valueOf(binaryRunnerResult.exitCode()));
     }
 
-    private boolean checkFileIsCompatibleWithOs(String binaryFile) {
-        if (OS.contains(WINDOWS_OS) && !binaryFile.endsWith(".bat")) {
-            return false;
-        } else if (!OS.contains(WINDOWS_OS) && !binaryFile.endsWith(".sh")) {
-            return false;
-        } else {
+    /*
+     * running the binary file with the given input as its standard input, the
+     * input is streamed to the process as it is read
+     */
+    public BinaryRunnerResponse binaryRunner(BinaryRunnerRequest request, InputStream input, String client)
+            throws BinaryRunningException {
+        var plan = prepareExecution(request);
+        var stdout = newOutputBuffer();
+        var stderr = newOutputBuffer();
+        var usage = new AtomicReference<ResourceUsage>();
+        var filteredStdout = filterOutput(request, stdout);
+        int exitCode = limitExecution(baselineOf(plan), () -> {
+            var execution = submitProcess(plan, true, filteredStdout, stderr, usage::set, client);
+            feedInput(execution, input);
+            return execution;
+        });
+        return toResponse(toResult(exitCode, stdout, stderr, usage.get()));
+    }
+
+    /*
+     * validating the request and bringing back its execution plan, all the request
+     * related errors are thrown here, before anything is sent back to the client
+     */
+    public ExecutionPlan prepareExecution(BinaryRunnerRequest request) throws BinaryRunningException {
+        return executionPlanner.plan(request);
+    }
+
+    /*
+     * taking a permit of the adaptive limit before the streamed response is
+     * started. the admission must be run by streamBinary or released when the
+     * response is finished
+     */
+    public ExecutionAdmission admitExecution() throws BinaryRunningException {
+        if (!concurrencyLimiter.tryAcquire()) {
+            throw new BinaryRunningException(String.valueOf(HOST_OVERLOADED.getExitCode()));
+        }
+        return new ExecutionAdmission(concurrencyLimiter);
+    }
+
+    /*
+     * running the planned and admitted command and writing every output line as
+     * soon as it is produced as a new line delimited json event, the exit code is
+     * written as the trailing event. nothing is kept in memory except the line
+     * which is written and the lines kept by the tail of the filter.
+     * a client which is gone stops the binary file like a reached head, nothing is
+     * written after that
+     */
+    public void streamBinary(ExecutionPlan plan, OutputFilter filter, String client, ExecutionAdmission admission,
+            OutputStream outputStream) {
+        if (!admission.claim()) {
+            log.debug("admission of the stream has been released before it is run");
+            return;
+        }
+        var disconnected = new AtomicBoolean();
+        var stdout = filter.wrap(newLineSink(line -> {
+            if (!writeEvent(outputStream, BinaryRunnerStreamEvent.output(line))) {
+                disconnected.set(true);
+                throw new OutputFilter.LimitReachedException();
+            }
+        }), maxOutputBytes);
+        int exitCode = runAdmitted(baselineOf(plan), () -> submitProcess(plan, stdout, OutputStream.nullOutputStream(), client));
+
+        var commandExitCode = CommandExitCode.getCommandExitCodeByValue(exitCode);
+        if (disconnected.get() || !writeEvent(outputStream, BinaryRunnerStreamEvent.exit(exitCode, commandExitCode.getErrorMessage()))) {
+            log.debug("client of the stream is gone, the binary file has been stopped");
+        }
+    }
+
+    // false if the client is gone
+    private boolean writeEvent(OutputStream outputStream, BinaryRunnerStreamEvent event) {
+        try {
+            objectMapper.writeValue(outputStream, event);
+            outputStream.write('\n');
+            outputStream.flush();
             return true;
+        } catch (IOException ex) {
+            log.debug("event could not be written to the stream {}", ex.getMessage());
+            return false;
         }
     }
 
     /*
-     * separating the run by super user command from the real binary file name and
-     * path.
+     * running the stages connected stdout to stdin by os pipes, the output of the
+     * last stage is the output of the pipeline. if a stage fails, the exit code of
+     * the first failed stage is thrown. the whole pipeline is stopped by the
+     * shortest timeout of the pipeline and its stages
      */
-    private String binaryFileSeperator(String binaryFile) {
-        if (OS.contains(WINDOWS_OS) && binaryFile.toLowerCase().startsWith(WINDOWS_SUPERUSER_COMMAND)) {
-            runBySuperUser = true;
-            return binaryFile.substring(WINDOWS_SUPERUSER_COMMAND.length()).trim();
-        } else if (binaryFile.toLowerCase().startsWith(UNIX_BASE_SUPERUSER_COMMAND)) {
-            runBySuperUser = true;
-            return binaryFile.substring(UNIX_BASE_SUPERUSER_COMMAND.length()).trim();
+    public BinaryRunnerResponse binaryRunnerPipeline(BinaryRunnerPipelineRequest request, String client)
+            throws BinaryRunningException {
+        List<ExecutionPlan> stages = new ArrayList<>();
+        for (var stage : request.getStages()) {
+            stages.add(prepareExecution(stage));
         }
-        return binaryFile;
+        long timeout = stages.stream().mapToLong(ExecutionPlan::timeout).min().orElseThrow();
+        if (request.getTimeout() != null) {
+            timeout = Math.min(timeout, request.getTimeout());
+        }
+
+        var stdout = newOutputBuffer();
+        var usage = new AtomicReference<ResourceUsage>();
+        var pipelineTimeout = timeout;
+        var script = slowestScript(stages);
+        int exitCode = limitExecution(metrics.expectedRuntime(script),
+                () -> submitPipeline(script, stages, pipelineTimeout, stdout, usage::set, client));
+        return toResponse(toResult(exitCode, stdout, newOutputBuffer(), usage.get()));
+    }
+
+    private BinaryRunnerResult executeBinary(ExecutionPlan plan, OutputFilter filter, String client) {
+        var stdout = newOutputBuffer();
+        var stderr = newOutputBuffer();
+        var usage = new AtomicReference<ResourceUsage>();
+        var filteredStdout = filter.wrap(stdout, maxOutputBytes);
+        int exitCode = limitExecution(baselineOf(plan), () -> submitProcess(plan, false, filteredStdout, stderr, usage::set, client));
+        return toResult(exitCode, stdout, stderr, usage.get());
     }
 
     /*
-     * validating the existence of executable file.
-     * if fileName has no path, the application will check the current working
-     * directory and the user's home directory respectively (has been handled by
-     * setFullPathOfFile()).
-     * 
-     * if the command should run by the admin or root user, for path and binary file
-     * validaiotn first we should remove for example sudo keyword (has been handled
-     * by checkRunAsAdmin()).
+     * the execution is shed right away if the adaptive limit is reached, its
+     * latency compared to the baseline (the usual runtime of the binary file) and
+     * its outcome adapt the limit
      */
-    private List<String> setCommand(String binaryFile, List<String> args) {
-        String binaryFileWithFullPath = setFullPathOfFile(binaryFile);
-        List<String> finalCommand = new ArrayList<>();
+    private int limitExecution(long baseline, Supplier<ProcessExecution> submission) {
+        if (!concurrencyLimiter.tryAcquire()) {
+            return HOST_OVERLOADED.getExitCode();
+        }
+        return runAdmitted(baseline, submission);
+    }
 
-        finalCommand.add(binaryFileWithFullPath);
-        if (args != null && !args.isEmpty()) {
-            finalCommand.addAll(args);
+    private int runAdmitted(long baseline, Supplier<ProcessExecution> submission) {
+        long startTime = System.currentTimeMillis();
+        int exitCode = INTERNAL_SERVER_ERROR.getExitCode();
+        try {
+            exitCode = runProcess(submission);
+            return exitCode;
+        } finally {
+            releaseLimit(baseline, startTime, exitCode);
         }
+    }
 
-        return finalCommand;
+    // taken before the execution, so it doesn't count in its own baseline
+    private long baselineOf(ExecutionPlan plan) {
+        return metrics.expectedRuntime(metrics.scriptOf(plan.commands()));
     }
 
-    private String setFullPathOfFile(String binaryFile) throws BinaryRunningException {
+    private void releaseLimit(long baseline, long startTime, int exitCode) {
+        boolean congested = exitCode == TIMEOUT_REACHED.getExitCode()
+                || exitCode == EXECUTION_QUEUE_FULL.getExitCode();
+        // nothing has been run, so there is nothing to learn from
+        boolean skipped = exitCode == DEADLINE_UNREACHABLE.getExitCode()
+                || exitCode == CLIENT_QUOTA_EXCEEDED.getExitCode();
+        concurrencyLimiter.release(System.currentTimeMillis() - startTime, baseline, congested, skipped);
+    }
 
-        var slash = "/";
-        var isFileExist = new File(binaryFile).exists();
+    BinaryRunnerResult toResult(int exitCode, BoundedOutputBuffer stdout, BoundedOutputBuffer stderr) {
+        return toResult(exitCode, stdout, stderr, null);
+    }
 
-        if (isFileExist) {
-            log.info("file has been found {}", binaryFile);
-            return binaryFile;
-        } else if (binaryFile.contains(slash)) { // inputed file contain invalid path
-            throw new BinaryRunningException(String.valueOf(FILE_NOT_FOUND.getExitCode()));
+    BinaryRunnerResult toResult(int exitCode, BoundedOutputBuffer stdout, BoundedOutputBuffer stderr,
+            ResourceUsage usage) {
+        if (exitCode == SUCCESSFUL.getExitCode()) {
+            return new BinaryRunnerResult(exitCode, stdout.toCapturedOutput(), usage);
+        }
+        var error = stderr.toCapturedOutput();
+        if (error.totalBytes() > 0) {
+            log.warn("error output of the binary file: {}", String.join("\n", error.lines()));
         }
+        return new BinaryRunnerResult(exitCode, null);
+    }
+
+    // every output stream is kept at most by maxOutputBytes
+    BoundedOutputBuffer newOutputBuffer() {
+        return new BoundedOutputBuffer(maxOutputBytes, truncationMode);
+    }
 
-        // check for working and user_home directory
-        var workingDirectory = Paths.get("").toAbsolutePath().toString() + slash;
-        var userHome = System.getProperty("user.home") + slash;
-        String[] otherPath = new String[] { workingDirectory, userHome };
+    OutputStream newLineSink(Consumer<String> lineConsumer) {
+        return new LineSplittingOutputStream(lineConsumer, maxOutputBytes);
+    }
+
+    // only the output lines asked by the request are written to the output
+    OutputStream filterOutput(BinaryRunnerRequest request, OutputStream output) {
+        return OutputFilter.of(request).wrap(output, maxOutputBytes);
+    }
 
-        for (String path : otherPath) {
-            var file = new File(path + binaryFile);
-            if (file.exists()) {
-                log.info("full path of excutable file is {}{}", path, binaryFile);
-                return path + binaryFile;
+    /*
+     * running the command on the shared pool and waiting for it at most for the
+     * given timeout
+     */
+    private int runProcess(Supplier<ProcessExecution> submission) {
+        ProcessExecution execution;
+        try {
+            execution = submission.get();
+        } catch (RejectedExecutionException e) {
+            // both running and waiting slots are full, reject fast instead of queuing
+            return EXECUTION_QUEUE_FULL.getExitCode();
+        }
+        return awaitProcess(execution);
+    }
+
+    ProcessExecution submitProcess(ExecutionPlan plan, OutputStream stdout, OutputStream stderr,
+            Consumer<ResourceUsage> usageListener, String client) throws RejectedExecutionException {
+        return submitProcess(plan, false, stdout, stderr, usageListener, client);
+    }
+
+    ProcessExecution submitProcess(ExecutionPlan plan, OutputStream stdout, OutputStream stderr, String client)
+            throws RejectedExecutionException {
+        return submitProcess(plan, false, stdout, stderr, usage -> {
+        }, client);
+    }
+
+    private ProcessExecution submitProcess(ExecutionPlan plan, boolean withInput, OutputStream stdout,
+            OutputStream stderr, Consumer<ResourceUsage> usageListener, String client)
+            throws RejectedExecutionException {
+        return submit(metrics.scriptOf(plan.commands()), plan.timeout(), client, execution -> createProcessTask(
+                plan.newProcessBuilder(), withInput, stdout, stderr, execution::attach, usageListener));
+    }
+
+    /*
+     * copying the input to the standard input of the process on the request thread
+     * while the pool thread drains its output, so neither side waits for the other
+     * one. a write blocks while the pipe is full until the process reads more, so
+     * the input is never buffered. a process which doesn't read its input must not
+     * block the copy, so the execution is cancelled at its deadline
+     */
+    private void feedInput(ProcessExecution execution, InputStream input) {
+        var watchdog = CompletableFuture.runAsync(execution::cancel,
+                CompletableFuture.delayedExecutor(execution.remaining(), TimeUnit.MILLISECONDS));
+        try {
+            var process = execution.awaitStart();
+            if (process == null) {
+                return;
             }
+            try (var stdin = process.getOutputStream()) {
+                input.transferTo(stdin);
+            }
+        } catch (IOException ex) {
+            // the process is finished or stopped before reading the whole input
+            log.warn("input could not be written to the binary file {}", ex.getMessage());
+        } catch (ExecutionException | TimeoutException ex) {
+            log.warn("binary file has not been started before its deadline");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watchdog.cancel(false);
         }
+    }
 
-        // throw exception if file doesn't exist in none of the above path
-        throw new BinaryRunningException(String.valueOf(FILE_NOT_FOUND.getExitCode()));
+    // the pipeline can not be finished before its slowest stage
+    private String slowestScript(List<ExecutionPlan> stages) {
+        return stages.stream()
+                .map(stage -> metrics.scriptOf(stage.commands()))
+                .max(Comparator.comparingLong(metrics::expectedRuntime))
+                .orElseThrow();
     }
 
-    private BinaryRunnerResult executeBinary(ProcessBuilder processBuilder) {
-        var executorService = Executors.newSingleThreadExecutor();
-        long startTime = System.currentTimeMillis();
+    private ProcessExecution submitPipeline(String script, List<ExecutionPlan> stages, long timeout,
+            OutputStream stdout, Consumer<ResourceUsage> usageListener, String client)
+            throws RejectedExecutionException {
+        return submit(script, timeout, client,
+                execution -> createPipelineTask(stages, stdout, execution::attach, usageListener));
+    }
+
+    /*
+     * running the task with the help of the shared process execution pool,
+     * earliest deadline first. a command which is expected to run longer than the
+     * time left until its deadline is rejected without starting it, both at the
+     * submission and when it leaves the queue. the execution holds a running slot
+     * of the client until it is finished
+     */
+    private ProcessExecution submit(String script, long timeout, String client,
+            Function<ProcessExecution, Callable<Integer>> taskFactory) throws RejectedExecutionException {
+        var execution = new ProcessExecution(processRegistry, timeout);
+        if (!canMeetDeadline(script, execution)) {
+            execution.setFuture(CompletableFuture.completedFuture(DEADLINE_UNREACHABLE.getExitCode()));
+            return execution;
+        }
+        if (!clientQuotas.tryAcquireSlot(client)) {
+            execution.setFuture(CompletableFuture.completedFuture(CLIENT_QUOTA_EXCEEDED.getExitCode()));
+            return execution;
+        }
+
+        var task = taskFactory.apply(execution);
+        execution.setFuture(processExecutionScheduler.submit(
+                () -> canMeetDeadline(script, execution) ? task.call() : DEADLINE_UNREACHABLE.getExitCode(),
+                execution.getDeadline(), client, clientQuotas.weightOf(client),
+                () -> {
+                    clientQuotas.releaseSlot(client);
+                    execution.finished();
+                }));
+        return execution;
+    }
+
+    private boolean canMeetDeadline(String script, ProcessExecution execution) {
+        long expectedRuntime = metrics.expectedRuntime(script);
+        long remaining = execution.remaining();
+        if (expectedRuntime > remaining) {
+            log.warn("{} is expected to run {} milliseconds but {} milliseconds are left, it is rejected", script,
+                    expectedRuntime, remaining);
+            metrics.recordDeadlineRejection(script);
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * waiting for the submitted command until its deadline, the exit code of the
+     * command or the one related to the occurred error is returned
+     */
+    int awaitProcess(ProcessExecution execution) {
+        long startTime = execution.getStartTime();
         try {
-            // running the command with the help of an auxiliary thread
-            CompletableFuture<BinaryRunnerResult> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    var process = processBuilder.start();
+            var exitCode = execution.getFuture().get(execution.remaining(), TimeUnit.MILLISECONDS);
+            log.info("excution finished by exit code {}", exitCode);
+            return exitCode;
+        } catch (TimeoutException e) {
+            log.error("execution timed out and has been cancelled");
+            // Cancel the task and destroy the whole process tree if timeout is reached
+            execution.cancel();
+            return TIMEOUT_REACHED.getExitCode();
+
+        } catch (CancellationException e) {
+            log.error("execution has been cancelled at its deadline");
+            return TIMEOUT_REACHED.getExitCode();
+
+        } catch (InterruptedException | ExecutionException e) {
+            log.error("exception during the execution of file {}", e.getMessage(), e);
+            return INTERNAL_SERVER_ERROR.getExitCode();
+        } finally {
+            long endTime = System.currentTimeMillis();
+            long executionTime = endTime - startTime;
+            log.info("commnad execution time is {} milliseconds", executionTime);
+        }
+    }
 
-                    var reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                    List<String> output = new ArrayList<>();
+    /*
+     * creating the task which runs the command and copies its standard output and
+     * error to the given streams. both of them are drained at the same time, so a
+     * binary file which writes a lot to one of them never blocks on a full pipe.
+     * the standard input is closed right away, so a binary file waiting for input
+     * gets the end of the stream instead of hanging. the started process is tracked
+     * by the registry and handed to the listener so the caller is able to stop it,
+     * whatever is left alive by the command is destroyed when the task ends.
+     * the resources used by the process tree are sampled while it is running and
+     * handed to the usage listener when its output is finished.
+     * if a pre started shell worker is available the command is sent to it instead.
+     * the task returns the exit code of the command or the one related to the
+     * occurred error
+     */
+    Callable<Integer> createProcessTask(ProcessBuilder processBuilder, OutputStream stdout, OutputStream stderr,
+            Consumer<Process> processListener) {
+        return createProcessTask(processBuilder, false, stdout, stderr, processListener, usage -> {
+        });
+    }
 
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        output.add(line);
-                    }
-                    return new BinaryRunnerResult(process.waitFor(), output);
-                } catch (IOException ex) {
-                    var errorMessage = ex.getMessage().toLowerCase();
-                    // the file is not executable or has no sufficient privileges
-                    String[] permissionDenied = new String[] { "permission denied", "error=13" };
-                    if (Arrays.stream(permissionDenied).anyMatch(errorMessage::contains)) {
-                        return new BinaryRunnerResult(FILE_PERMISSION_DENIED.getExitCode(), null);
+    // with input, the standard input is left open for the caller and no worker is used
+    private Callable<Integer> createProcessTask(ProcessBuilder processBuilder, boolean withInput,
+            OutputStream stdout, OutputStream stderr, Consumer<Process> processListener,
+            Consumer<ResourceUsage> usageListener) {
+        return () -> {
+            var script = metrics.scriptOf(processBuilder.command());
+            log.info("start running {}", processBuilder.command());
+            long startNanos = System.nanoTime();
+            var spawnedEvent = ProcessSpawnedEvent.start();
+            var exitedEvent = ProcessExitedEvent.start();
+            var worker = withInput ? null : shellWorkerPool.acquire(processBuilder);
+            if (worker != null) {
+                return runOnWorker(worker, processBuilder.command(), stdout, stderr, processListener, usageListener,
+                        script, startNanos, spawnedEvent, exitedEvent);
+            }
+            boolean started = false;
+            try {
+                var process = processBuilder.start();
+                started = true;
+                int argumentCount = metrics.argumentCountOf(processBuilder.command());
+                metrics.recordSpawn(script, startNanos);
+                spawnedEvent.finish(script, argumentCount, process.pid(), false);
+                processRegistry.register(process);
+                var usageTracker = resourceUsageMonitor.track(process);
+                var meteredStdout = metrics.meter(stdout, script, startNanos);
+                int exitCode = INTERNAL_SERVER_ERROR.getExitCode();
+                try {
+                    processListener.accept(process);
+                    if (!withInput) {
+                        process.getOutputStream().close();
                     }
 
-                    log.error("exception during the execution of file {}", ex.getMessage(), ex);
-                    return new BinaryRunnerResult(INTERNAL_SERVER_ERROR.getExitCode(), null);
-                } catch (InterruptedException e) {
-                    log.error("exception during the execution of file {}", e.getMessage());
-                    return new BinaryRunnerResult(INTERNAL_SERVER_ERROR.getExitCode(), null);
+                    var errorDrain = processExecutionScheduler.drain(() -> transfer(process.getErrorStream(), stderr));
+                    boolean limitReached = false;
+                    try (var inputStream = process.getInputStream(); meteredStdout) {
+                        inputStream.transferTo(meteredStdout);
+                    } catch (OutputFilter.LimitReachedException ex) {
+                        // everything asked by the filter has been read, the rest of the output is not waited for
+                        limitReached = true;
+                        processRegistry.destroyTree(process);
+                    }
+                    usageTracker.stop();
+                    exitCode = process.waitFor();
+                    errorDrain.get();
+                    if (limitReached) {
+                        exitCode = SUCCESSFUL.getExitCode();
+                    }
+                    return exitCode;
+                } finally {
+                    var usage = usageTracker.stop();
+                    processRegistry.release(process);
+                    metrics.recordExit(script, startNanos, exitCode);
+                    exitedEvent.finish(script, argumentCount, process.pid(), exitCode, meteredStdout.getBytes());
+                    journal.record(processBuilder.command(), exitCode, startNanos, meteredStdout.getBytes());
+                    metrics.recordUsage(script, usage);
+                    usageListener.accept(usage);
+                }
+            } catch (IOException | UncheckedIOException ex) {
+                int exitCode = exitCodeOf(ex);
+                if (!started) {
+                    // a binary file which could not be started is journaled too
+                    journal.record(processBuilder.command(), exitCode, startNanos, 0);
                 }
-            }, executorService);
+                return exitCode;
+            } catch (InterruptedException | ExecutionException e) {
+                log.error("exception during the execution of file {}", e.getMessage());
+                return INTERNAL_SERVER_ERROR.getExitCode();
+            }
+        };
+    }
 
+    /*
+     * creating the task which starts all the stages of the pipeline at once by
+     * ProcessBuilder.startPipeline, so the output of a stage goes to the next one
+     * by an os pipe and never passes through the jvm. only the output of the last
+     * stage is copied to the given stream, the error output of the stages is
+     * discarded so none of them blocks on a full pipe. every stage is tracked and
+     * handed to the listener like a single command, the usage of the pipeline is
+     * the sum of its stages.
+     * the task returns the exit code of the first failed stage. a stage stopped by
+     * SIGPIPE because a later stage has finished reading (e.g. head) is not failed
+     */
+    Callable<Integer> createPipelineTask(List<ExecutionPlan> stages, OutputStream stdout,
+            Consumer<Process> processListener, Consumer<ResourceUsage> usageListener) {
+        return () -> {
+            List<ProcessBuilder> builders = new ArrayList<>();
+            List<String> scripts = new ArrayList<>();
+            List<Integer> argumentCounts = new ArrayList<>();
+            for (var stage : stages) {
+                builders.add(stage.newProcessBuilder().redirectError(ProcessBuilder.Redirect.DISCARD));
+                scripts.add(metrics.scriptOf(stage.commands()));
+                argumentCounts.add(metrics.argumentCountOf(stage.commands()));
+            }
+            log.info("start running pipeline {}", builders.stream().map(ProcessBuilder::command).toList());
+            long startNanos = System.nanoTime();
+            List<ProcessSpawnedEvent> spawnedEvents = new ArrayList<>();
+            List<ProcessExitedEvent> exitedEvents = new ArrayList<>();
+            for (int i = 0; i < stages.size(); i++) {
+                spawnedEvents.add(ProcessSpawnedEvent.start());
+                exitedEvents.add(ProcessExitedEvent.start());
+            }
+            List<Process> processes;
             try {
-                var result = future.get(processTimeout, TimeUnit.MILLISECONDS);
-                log.info("excution finished by exit code {}", result.exitCode());
-                return result;
-            } catch (TimeoutException e) {
-                log.error("execution timed out and has been cancelled");
-                // Cancel the task and release its responsible thread if timeout is reached
-                future.cancel(true);
-                return new BinaryRunnerResult(TIMEOUT_REACHED.getExitCode(), null);
+                processes = ProcessBuilder.startPipeline(builders);
+            } catch (IOException | UncheckedIOException ex) {
+                return exitCodeOf(ex);
+            }
 
-            } catch (InterruptedException | ExecutionException e) {
-                log.error("exception during the execution of file {}", e.getMessage(), e);
-                return new BinaryRunnerResult(INTERNAL_SERVER_ERROR.getExitCode(), null);
+            int[] exitCodes = new int[processes.size()];
+            Arrays.fill(exitCodes, INTERNAL_SERVER_ERROR.getExitCode());
+            List<ResourceUsageMonitor.Tracker> usageTrackers = new ArrayList<>();
+            var meteredStdout = metrics.meter(stdout, scripts.get(exitCodes.length - 1), startNanos);
+            try {
+                for (int i = 0; i < exitCodes.length; i++) {
+                    metrics.recordSpawn(scripts.get(i), startNanos);
+                    spawnedEvents.get(i).finish(scripts.get(i), argumentCounts.get(i), processes.get(i).pid(), false);
+                    processRegistry.register(processes.get(i));
+                    usageTrackers.add(resourceUsageMonitor.track(processes.get(i)));
+                    processListener.accept(processes.get(i));
+                }
+                processes.get(0).getOutputStream().close();
+
+                var last = processes.get(processes.size() - 1);
+                boolean limitReached = false;
+                try (var inputStream = last.getInputStream(); meteredStdout) {
+                    inputStream.transferTo(meteredStdout);
+                } catch (OutputFilter.LimitReachedException ex) {
+                    limitReached = true;
+                    processes.forEach(processRegistry::destroyTree);
+                }
+                usageTrackers.forEach(ResourceUsageMonitor.Tracker::stop);
+                for (int i = 0; i < exitCodes.length; i++) {
+                    exitCodes[i] = processes.get(i).waitFor();
+                }
+                if (limitReached) {
+                    Arrays.fill(exitCodes, SUCCESSFUL.getExitCode());
+                }
+                return firstFailure(exitCodes);
+            } catch (IOException | UncheckedIOException ex) {
+                log.error("exception during the execution of pipeline {}", ex.getMessage(), ex);
+                return INTERNAL_SERVER_ERROR.getExitCode();
+            } finally {
+                ResourceUsage pipelineUsage = null;
+                for (int i = 0; i < exitCodes.length; i++) {
+                    processRegistry.release(processes.get(i));
+                    metrics.recordExit(scripts.get(i), startNanos, exitCodes[i]);
+                    // only the output of the last stage leaves the pipeline
+                    exitedEvents.get(i).finish(scripts.get(i), argumentCounts.get(i), processes.get(i).pid(),
+                            exitCodes[i], i == exitCodes.length - 1 ? meteredStdout.getBytes() : 0);
+                    journal.record(builders.get(i).command(), exitCodes[i], startNanos,
+                            i == exitCodes.length - 1 ? meteredStdout.getBytes() : 0);
+                    if (i < usageTrackers.size()) {
+                        var usage = usageTrackers.get(i).stop();
+                        metrics.recordUsage(scripts.get(i), usage);
+                        pipelineUsage = usage == null ? pipelineUsage : usage.plus(pipelineUsage);
+                    }
+                }
+                usageListener.accept(pipelineUsage);
             }
+        };
+    }
 
-        } finally
+    private static int firstFailure(int[] exitCodes) {
+        var lastExitCode = exitCodes[exitCodes.length - 1];
+        for (int i = 0; i < exitCodes.length; i++) {
+            boolean brokenPipe = i < exitCodes.length - 1 && exitCodes[i] == SIGPIPE_EXIT_CODE
+                    && lastExitCode == SUCCESSFUL.getExitCode();
+            if (exitCodes[i] != SUCCESSFUL.getExitCode() && !brokenPipe) {
+                log.warn("stage {} of the pipeline has been failed by exit code {}", i, exitCodes[i]);
+                return exitCodes[i];
+            }
+        }
+        return SUCCESSFUL.getExitCode();
+    }
 
-        {
-            long endTime = System.currentTimeMillis();
-            long executionTime = endTime - startTime;
-            log.info("commnad execution time is {} milliseconds", executionTime);
-            executorService.shutdownNow();
+    // the exit code of a binary file which could not be started
+    public static int exitCodeOf(Exception ex) {
+        var errorMessage = String.valueOf(ex.getMessage()).toLowerCase();
+        // the file is not executable or has no sufficient privileges
+        String[] permissionDenied = new String[] { "permission denied", "error=13" };
+        if (Arrays.stream(permissionDenied).anyMatch(errorMessage::contains)) {
+            return FILE_PERMISSION_DENIED.getExitCode();
+        }
+
+        log.error("exception during the execution of file {}", ex.getMessage(), ex);
+        return INTERNAL_SERVER_ERROR.getExitCode();
+    }
+
+    // the usage of the binary file is the growth of the usage of the worker tree while it runs
+    private int runOnWorker(ShellWorker worker, List<String> command, OutputStream stdout, OutputStream stderr,
+            Consumer<Process> processListener, Consumer<ResourceUsage> usageListener, String script,
+            long startNanos, ProcessSpawnedEvent spawnedEvent, ProcessExitedEvent exitedEvent) {
+        int argumentCount = metrics.argumentCountOf(command);
+        long pid = worker.getProcess().pid();
+        metrics.recordSpawn(script, startNanos);
+        spawnedEvent.finish(script, argumentCount, pid, true);
+        var usageTracker = resourceUsageMonitor.trackWorker(worker.getProcess());
+        var meteredStdout = metrics.meter(stdout, script, startNanos);
+        int exitCode = INTERNAL_SERVER_ERROR.getExitCode();
+        boolean succeeded = false;
+        try {
+            // stopping the execution destroys the worker together with the binary file
+            processListener.accept(worker.getProcess());
+            try (meteredStdout) {
+                exitCode = worker.execute(command, meteredStdout, stderr);
+            } catch (OutputFilter.LimitReachedException ex) {
+                // the worker is still running the binary file, so it is destroyed by its release
+                exitCode = SUCCESSFUL.getExitCode();
+                return exitCode;
+            }
+            succeeded = true;
+            return exitCode;
+        } catch (IOException | UncheckedIOException ex) {
+            log.error("exception during the execution of file {}", ex.getMessage(), ex);
+            return INTERNAL_SERVER_ERROR.getExitCode();
+        } finally {
+            // taken before the release, which may destroy the worker
+            var usage = usageTracker.stop();
+            shellWorkerPool.release(worker, succeeded);
+            metrics.recordExit(script, startNanos, exitCode);
+            exitedEvent.finish(script, argumentCount, pid, exitCode, meteredStdout.getBytes());
+            journal.record(command, exitCode, startNanos, meteredStdout.getBytes());
+            metrics.recordUsage(script, usage);
+            usageListener.accept(usage);
+        }
+    }
+
+    private void transfer(InputStream inputStream, OutputStream outputStream) {
+        try (inputStream) {
+            inputStream.transferTo(outputStream);
+        } catch (IOException ex) {
+            log.warn("error output of the binary file could not be read {}", ex.getMessage());
         }
     }
 }
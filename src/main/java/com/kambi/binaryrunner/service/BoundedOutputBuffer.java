@@ -0,0 +1,102 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.kambi.binaryrunner.model.CapturedOutput;
+import com.kambi.binaryrunner.model.TruncationMode;
+
+/*
+ * keeping at most maxBytes of an output stream in memory.
+ * HEAD keeps the beginning of the output, TAIL keeps the end of it in a ring
+ * buffer and HEAD_TAIL keeps half of each with a marker between them. the rest
+ * of the output is only counted
+ */
+public class BoundedOutputBuffer extends OutputStream {
+    private static final byte[] TRUNCATION_MARKER = "\n...[truncated]...\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final int headCapacity;
+    private final int tailCapacity;
+    private byte[] headBuffer = new byte[0];
+    private byte[] tailBuffer = new byte[0];
+    private int headSize;
+    private long tailWritten;
+    private long totalBytes;
+
+    public BoundedOutputBuffer(int maxBytes, TruncationMode mode) {
+        this.headCapacity = switch (mode) {
+            case HEAD -> maxBytes;
+            case TAIL -> 0;
+            case HEAD_TAIL -> maxBytes / 2;
+        };
+        this.tailCapacity = maxBytes - headCapacity;
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        totalBytes += length;
+        int toHead = Math.min(length, headCapacity - headSize);
+        if (toHead > 0) {
+            headBuffer = grow(headBuffer, headSize + toHead, headCapacity);
+            System.arraycopy(bytes, offset, headBuffer, headSize, toHead);
+            headSize += toHead;
+            offset += toHead;
+            length -= toHead;
+        }
+        if (length > 0 && tailCapacity > 0) {
+            writeTail(bytes, offset, length);
+        }
+    }
+
+    public synchronized CapturedOutput toCapturedOutput() {
+        int tailSize = (int) Math.min(tailWritten, tailCapacity);
+        boolean truncated = totalBytes > headSize + tailSize;
+        int markerSize = truncated && headSize > 0 && tailSize > 0 ? TRUNCATION_MARKER.length : 0;
+
+        var data = new byte[headSize + markerSize + tailSize];
+        System.arraycopy(headBuffer, 0, data, 0, headSize);
+        System.arraycopy(TRUNCATION_MARKER, 0, data, headSize, markerSize);
+        if (tailSize > 0) {
+            // the oldest byte of a full ring buffer is the next one to be overwritten
+            int start = (int) (tailWritten > tailCapacity ? tailWritten % tailCapacity : 0);
+            int firstPart = Math.min(tailSize, tailBuffer.length - start);
+            System.arraycopy(tailBuffer, start, data, headSize + markerSize, firstPart);
+            System.arraycopy(tailBuffer, 0, data, headSize + markerSize + firstPart, tailSize - firstPart);
+        }
+        return new CapturedOutput(data, totalBytes, truncated);
+    }
+
+    private void writeTail(byte[] bytes, int offset, int length) {
+        if (length >= tailCapacity) {
+            // only the last tailCapacity bytes survive
+            offset += length - tailCapacity;
+            tailWritten += length - tailCapacity;
+            length = tailCapacity;
+        }
+        tailBuffer = grow(tailBuffer, (int) Math.min(tailWritten + length, tailCapacity), tailCapacity);
+        while (length > 0) {
+            int position = (int) (tailWritten % tailCapacity);
+            int chunk = Math.min(length, tailCapacity - position);
+            System.arraycopy(bytes, offset, tailBuffer, position, chunk);
+            tailWritten += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    // buffers grow on demand, so a small output never allocates maxBytes
+    private static byte[] grow(byte[] buffer, int needed, int capacity) {
+        if (needed <= buffer.length) {
+            return buffer;
+        }
+        var size = Math.min(capacity, Math.max(needed, Math.max(256, buffer.length * 2)));
+        var grown = new byte[size];
+        System.arraycopy(buffer, 0, grown, 0, buffer.length);
+        return grown;
+    }
+}
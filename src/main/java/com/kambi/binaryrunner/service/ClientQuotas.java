@@ -0,0 +1,165 @@
+package com.kambi.binaryrunner.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * quotas of the clients calling the api.
+ * every client has a request rate, checked by a token bucket kept as the
+ * theoretical arrival time of the next request (gcra) in a single atomic long,
+ * and a number of binary files it can run at the same time. both are updated by
+ * compare and set only, so clients never wait for each other. at most maxClients
+ * clients are tracked one by one, the rest of them share the "other" client
+ */
+@Slf4j
+@Component
+public class ClientQuotas {
+    public static final String ANONYMOUS = "anonymous";
+    private static final String OTHER_CLIENT = "other";
+
+    private final Map<String, String> apiKeys;
+    private final Map<String, Double> weights;
+    private final double defaultWeight;
+    private final long emissionInterval;
+    private final long burstTolerance;
+    private final int maxConcurrent;
+    private final int maxClients;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ClientState> clients = new ConcurrentHashMap<>();
+
+    public ClientQuotas(@Value("${running.clients.api-keys}") String apiKeys,
+            @Value("${running.clients.weights}") String weights,
+            @Value("${running.clients.default-weight}") double defaultWeight,
+            @Value("${running.clients.rate}") double rate,
+            @Value("${running.clients.burst}") int burst,
+            @Value("${running.clients.max-concurrent}") int maxConcurrent,
+            @Value("${running.clients.max-clients}") int maxClients,
+            MeterRegistry meterRegistry) {
+        this.apiKeys = parse(apiKeys);
+        this.weights = parse(weights).entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> Double.valueOf(entry.getValue())));
+        this.defaultWeight = defaultWeight;
+        this.emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        this.burstTolerance = emissionInterval * Math.max(0, burst - 1);
+        this.maxConcurrent = maxConcurrent;
+        this.maxClients = maxClients;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // the client owning the api key, null if the key is unknown
+    public String clientOfApiKey(String apiKey) {
+        return apiKeys.get(apiKey);
+    }
+
+    public boolean hasApiKeys() {
+        return !apiKeys.isEmpty();
+    }
+
+    public double weightOf(String client) {
+        return weights.getOrDefault(client, defaultWeight);
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    // consuming a token of the client, false if it has sent too many requests
+    public boolean tryAcquireRate(String client) {
+        var state = stateOf(client);
+        long now = System.nanoTime();
+        while (true) {
+            long arrival = state.arrival.get();
+            long next = Math.max(arrival, now) + emissionInterval;
+            if (next - now > burstTolerance + emissionInterval) {
+                state.rateLimited.increment();
+                return false;
+            }
+            if (state.arrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    // taking a running slot of the client, every taken slot must be released
+    public boolean tryAcquireSlot(String client) {
+        var state = stateOf(client);
+        while (true) {
+            int running = state.running.get();
+            if (running >= maxConcurrent) {
+                state.quotaExceeded.increment();
+                log.warn("client {} is already running {} binary files", client, running);
+                return false;
+            }
+            if (state.running.compareAndSet(running, running + 1)) {
+                state.admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    public void releaseSlot(String client) {
+        stateOf(client).running.decrementAndGet();
+    }
+
+    private ClientState stateOf(String client) {
+        var state = clients.get(client);
+        if (state != null) {
+            return state;
+        }
+        var name = clients.size() < maxClients ? client : OTHER_CLIENT;
+        return clients.computeIfAbsent(name, this::newState);
+    }
+
+    private ClientState newState(String client) {
+        var state = new ClientState(client);
+        Gauge.builder("binary.runner.client.running", state.running, AtomicInteger::get)
+                .description("number of binary files the client is running")
+                .tag("client", client)
+                .register(meterRegistry);
+        return state;
+    }
+
+    // comma separated name:value pairs
+    private static Map<String, String> parse(String pairs) {
+        return Arrays.stream(pairs.split(","))
+                .map(String::trim)
+                .filter(pair -> pair.contains(":"))
+                .map(pair -> pair.split(":", 2))
+                .collect(Collectors.toMap(pair -> pair[0].trim(), pair -> pair[1].trim()));
+    }
+
+    private class ClientState {
+        private final AtomicLong arrival = new AtomicLong(System.nanoTime());
+        private final AtomicInteger running = new AtomicInteger();
+        private final Counter admitted;
+        private final Counter rateLimited;
+        private final Counter quotaExceeded;
+
+        ClientState(String client) {
+            this.admitted = counter(client, "admitted");
+            this.rateLimited = counter(client, "rate_limited");
+            this.quotaExceeded = counter(client, "quota_exceeded");
+        }
+
+        private Counter counter(String client, String result) {
+            return Counter.builder("binary.runner.client.requests")
+                    .description("number of binary file executions of the client by their admission result")
+                    .tag("client", client)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.kambi.binaryrunner.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/*
+ * a task of the process pool with the deadline and the client of its execution,
+ * tasks of a client are ordered by their deadline and then by their submission.
+ * the done callback runs once the task is finished or cancelled, a cancelled
+ * task is taken out of the queue right away so it does not hold a waiting slot
+ */
+class DeadlineTask<T> extends FutureTask<T> implements Comparable<DeadlineTask<?>> {
+    private final long deadline;
+    private final long sequence;
+    private final String client;
+    private final double weight;
+    private final Runnable onDone;
+    private final Consumer<Runnable> dequeue;
+
+    DeadlineTask(Callable<T> callable, long deadline, long sequence, String client, double weight,
+            Runnable onDone, Consumer<Runnable> dequeue) {
+        super(callable);
+        this.deadline = deadline;
+        this.sequence = sequence;
+        this.client = client;
+        this.weight = weight;
+        this.onDone = onDone;
+        this.dequeue = dequeue;
+    }
+
+    String getClient() {
+        return client;
+    }
+
+    double getWeight() {
+        return weight;
+    }
+
+    @Override
+    protected void done() {
+        onDone.run();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            dequeue.accept(this);
+        }
+        return cancelled;
+    }
+
+    @Override
+    public int compareTo(DeadlineTask<?> other) {
+        int result = Long.compare(deadline, other.deadline);
+        return result != 0 ? result : Long.compare(sequence, other.sequence);
+    }
+}
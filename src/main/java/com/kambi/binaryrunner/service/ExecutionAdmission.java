@@ -0,0 +1,31 @@
+package com.kambi.binaryrunner.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * a permit of the adaptive limit taken before a streamed response is started,
+ * so an overloaded host is answered by 503 instead of a trailing event. it is
+ * given back exactly once, either by the execution which claims it or by
+ * release when the response is finished without running it (e.g. the client
+ * is gone or the async request is timed out before the body is written)
+ */
+public class ExecutionAdmission {
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    ExecutionAdmission(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    // the permit is handed over to the execution, false if it has been released already
+    boolean claim() {
+        return settled.compareAndSet(false, true);
+    }
+
+    // nothing has been run on the permit, so the limit learns nothing from it
+    public void release() {
+        if (settled.compareAndSet(false, true)) {
+            concurrencyLimiter.release(0, false, true);
+        }
+    }
+}
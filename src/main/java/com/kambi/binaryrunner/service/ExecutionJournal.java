@@ -0,0 +1,478 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kambi.binaryrunner.model.CommandExitCode;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * append-only journal of the executions, one fixed size record per binary file
+ * (per stage of a pipeline) written to memory mapped segment files of
+ * segmentSize bytes in the journal directory.
+ * the request path only claims a slot of a ring buffer and fills it, a single
+ * writer thread copies the published slots to the current segment every
+ * flushInterval milliseconds, so recording never waits for a lock or the disk.
+ * when the ring is full the record is dropped and counted instead of waiting.
+ * a full segment is closed and a new one is started, the oldest segments are
+ * deleted above maxSegments and the ones older than retention milliseconds.
+ * the records are in the page cache as soon as they are written, so they are
+ * kept if the service is killed, and forced to the disk when a segment is
+ * closed.
+ *
+ * segment: header (magic, version, record size, first and last timestamp)
+ * followed by the records
+ * record: commit marker, exit code, timestamp (epoch milliseconds), duration
+ * (microseconds), output size (bytes), argument hash, script (length + utf-8).
+ * the commit marker is written last, so a record which has not been finished
+ * is not read
+ */
+@Slf4j
+@Component
+public class ExecutionJournal {
+    static final int RECORD_SIZE = 80;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC = 0x42524a31;
+    private static final int VERSION = 1;
+    private static final int COMMITTED = 0x5eca1ed;
+    private static final int MIN_TIMESTAMP = 16;
+    private static final int MAX_TIMESTAMP = 24;
+    private static final int MAX_SCRIPT_BYTES = RECORD_SIZE - 41;
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int maxSegments;
+    private final long retention;
+    private final int maxResults;
+    private final LongAdder dropped = new LongAdder();
+
+    // ring buffer, a slot is published by storing its sequence
+    private final int mask;
+    private final long[] timestamps;
+    private final long[] durations;
+    private final long[] outputSizes;
+    private final int[] exitCodes;
+    private final Object[] commands;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "binary-runner-journal-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean enabled;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private volatile Segment current;
+
+    public ExecutionJournal(@Value("${running.journal.enabled}") boolean enabled,
+            @Value("${running.journal.directory}") String directory,
+            @Value("${running.journal.segment-size}") long segmentSize,
+            @Value("${running.journal.max-segments}") int maxSegments,
+            @Value("${running.journal.retention}") long retention,
+            @Value("${running.journal.buffer-size}") int bufferSize,
+            @Value("${running.journal.flush-interval}") long flushInterval,
+            @Value("${running.journal.max-results}") int maxResults) {
+        this.directory = Paths.get(directory);
+        this.segmentSize = HEADER_SIZE + Math.max(1, (segmentSize - HEADER_SIZE) / RECORD_SIZE) * RECORD_SIZE;
+        this.maxSegments = maxSegments;
+        this.retention = retention;
+        this.maxResults = maxResults;
+
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.durations = new long[capacity];
+        this.outputSizes = new long[capacity];
+        this.exitCodes = new int[capacity];
+        this.commands = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+
+        if (enabled) {
+            this.enabled = open();
+        }
+        if (this.enabled) {
+            writer.scheduleWithFixedDelay(this::drain, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // number of the records dropped because the ring buffer was full
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /*
+     * recording a finished execution, called on the request path. nothing is
+     * computed here except the duration, the script and the argument hash are
+     * found by the writer
+     */
+    public void record(List<String> command, int exitCode, long startNanos, long outputBytes) {
+        if (!enabled) {
+            return;
+        }
+        long duration = System.nanoTime() - startNanos;
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        timestamps[slot] = System.currentTimeMillis();
+        durations[slot] = duration;
+        outputSizes[slot] = outputBytes;
+        exitCodes[slot] = exitCode;
+        commands[slot] = command;
+        published.lazySet(slot, sequence);
+    }
+
+    /*
+     * the records between from and to (inclusive, epoch milliseconds) of the
+     * script (file name of the binary file, every script if it is null) in the
+     * order they have been written, at most limit (maxResults) of them
+     */
+    public List<Entry> query(long from, long to, String script, Integer limit) {
+        int max = limit == null ? maxResults : Math.min(limit, maxResults);
+        List<Entry> entries = new ArrayList<>();
+        if (!enabled) {
+            return entries;
+        }
+        var active = current;
+        for (var path : segments()) {
+            if (entries.size() >= max) {
+                break;
+            }
+            try {
+                ByteBuffer buffer;
+                long count;
+                if (active != null && active.path.equals(path)) {
+                    count = active.count;
+                    buffer = active.buffer.duplicate();
+                } else {
+                    buffer = map(path, FileChannel.MapMode.READ_ONLY, Files.size(path));
+                    count = Long.MAX_VALUE;
+                }
+                if (!isSegment(buffer) || buffer.getLong(MAX_TIMESTAMP) < from || buffer.getLong(MIN_TIMESTAMP) > to) {
+                    continue;
+                }
+                read(buffer, count, from, to, script, max, entries);
+            } catch (IOException ex) {
+                // deleted by the retention since it has been listed
+                log.debug("journal segment {} could not be read {}", path, ex.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    @PreDestroy
+    public void close() {
+        writer.shutdownNow();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (!enabled) {
+            return;
+        }
+        // the writer has been stopped, so this thread is the only writer
+        drain();
+        enabled = false;
+        if (current != null) {
+            current.buffer.force();
+        }
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException ex) {
+            log.warn("journal lock could not be released {}", ex.getMessage());
+        }
+    }
+
+    public record Entry(Instant timestamp, String script, String argumentHash, int exitCode, String status,
+            long duration, long outputBytes) {
+    }
+
+    /*
+     * the directory is locked, so a second instance on the same directory runs
+     * without the journal instead of writing the same segment
+     */
+    private boolean open() {
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve("journal.lock"), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            lock = lockChannel.tryLock();
+        } catch (IOException | OverlappingFileLockException ex) {
+            lock = null;
+        }
+        if (lock == null) {
+            log.warn("execution journal is disabled, {} can not be locked", directory);
+            closeQuietly(lockChannel);
+            return false;
+        }
+
+        try {
+            var segments = segments();
+            if (!segments.isEmpty()) {
+                var last = segments.get(segments.size() - 1);
+                var buffer = map(last, FileChannel.MapMode.READ_WRITE, segmentSize);
+                if (isSegment(buffer)) {
+                    current = new Segment(last, buffer, countOf(buffer));
+                }
+            }
+            applyRetention();
+            log.info("execution journal is written to {}", directory.toAbsolutePath());
+            return true;
+        } catch (IOException ex) {
+            log.warn("execution journal is disabled, {} can not be opened {}", directory, ex.getMessage());
+            closeQuietly(lockChannel);
+            return false;
+        }
+    }
+
+    // copying the published slots to the segment, run only by the writer
+    private void drain() {
+        long sequence = consumed;
+        try {
+            while (published.get((int) (sequence & mask)) == sequence) {
+                int slot = (int) (sequence & mask);
+                @SuppressWarnings("unchecked")
+                var command = (List<String>) commands[slot];
+                commands[slot] = null;
+                write(timestamps[slot], durations[slot], outputSizes[slot], exitCodes[slot], command);
+                consumed = ++sequence;
+            }
+        } catch (IOException | RuntimeException ex) {
+            // the record is lost, the next ones are still written
+            log.error("execution journal could not be written {}", ex.getMessage(), ex);
+            consumed = sequence + 1;
+        }
+    }
+
+    private void write(long timestamp, long duration, long outputBytes, int exitCode, List<String> command)
+            throws IOException {
+        var segment = current;
+        if (segment == null || segment.isFull(segmentSize)) {
+            segment = rollOver(timestamp);
+        }
+        var buffer = segment.buffer;
+        int position = (int) (HEADER_SIZE + segment.count * RECORD_SIZE);
+        int binaryFile = binaryFileIndex(command);
+        buffer.putInt(position + 4, exitCode);
+        buffer.putLong(position + 8, timestamp);
+        buffer.putLong(position + 16, TimeUnit.NANOSECONDS.toMicros(duration));
+        buffer.putLong(position + 24, outputBytes);
+        buffer.putLong(position + 32, argumentHash(command, binaryFile + 1));
+        var script = scriptOf(command, binaryFile).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(script.length, MAX_SCRIPT_BYTES);
+        buffer.put(position + 40, (byte) length);
+        buffer.put(position + 41, script, 0, length);
+        buffer.putInt(position, COMMITTED);
+        buffer.putLong(MIN_TIMESTAMP, Math.min(buffer.getLong(MIN_TIMESTAMP), timestamp));
+        buffer.putLong(MAX_TIMESTAMP, Math.max(buffer.getLong(MAX_TIMESTAMP), timestamp));
+        segment.count++;
+    }
+
+    private Segment rollOver(long timestamp) throws IOException {
+        if (current != null) {
+            current.buffer.force();
+        }
+        // named by the time of its first record, so the names are in the order of the segments
+        var path = directory.resolve(String.format("%019d-%019d%s", timestamp, consumed, SEGMENT_SUFFIX));
+        var buffer = map(path, FileChannel.MapMode.READ_WRITE, segmentSize);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+        buffer.putLong(MIN_TIMESTAMP, Long.MAX_VALUE);
+        buffer.putLong(MAX_TIMESTAMP, Long.MIN_VALUE);
+        current = new Segment(path, buffer, 0);
+        applyRetention();
+        return current;
+    }
+
+    // every segment except the current one can be deleted, it is still readable by a running query
+    private void applyRetention() throws IOException {
+        var segments = segments();
+        long expired = System.currentTimeMillis() - retention;
+        for (int i = 0; i < segments.size(); i++) {
+            var path = segments.get(i);
+            if (current != null && current.path.equals(path)) {
+                continue;
+            }
+            boolean tooMany = segments.size() - i > maxSegments;
+            if (tooMany || lastTimestampOf(path) < expired) {
+                log.info("journal segment {} has been deleted by the retention", path.getFileName());
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private long lastTimestampOf(Path path) throws IOException {
+        var buffer = map(path, FileChannel.MapMode.READ_ONLY, Files.size(path));
+        return isSegment(buffer) ? buffer.getLong(MAX_TIMESTAMP) : Long.MIN_VALUE;
+    }
+
+    private void read(ByteBuffer buffer, long count, long from, long to, String script, int max, List<Entry> entries) {
+        long records = Math.min(count, (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE);
+        byte[] expected = script == null ? null : script.getBytes(StandardCharsets.UTF_8);
+        for (long i = 0; i < records && entries.size() < max; i++) {
+            int position = (int) (HEADER_SIZE + i * RECORD_SIZE);
+            if (buffer.getInt(position) != COMMITTED) {
+                break;
+            }
+            long timestamp = buffer.getLong(position + 8);
+            if (timestamp < from || timestamp > to || (expected != null && !scriptEquals(buffer, position, expected))) {
+                continue;
+            }
+            byte[] name = new byte[buffer.get(position + 40)];
+            buffer.get(position + 41, name);
+            int exitCode = buffer.getInt(position + 4);
+            entries.add(new Entry(Instant.ofEpochMilli(timestamp), new String(name, StandardCharsets.UTF_8),
+                    Long.toHexString(buffer.getLong(position + 32)), exitCode,
+                    CommandExitCode.getCommandExitCodeByValue(exitCode).name(), buffer.getLong(position + 16),
+                    buffer.getLong(position + 24)));
+        }
+    }
+
+    // comparing the bytes, so the records of the other scripts are skipped without decoding them
+    private static boolean scriptEquals(ByteBuffer buffer, int position, byte[] expected) {
+        int length = buffer.get(position + 40);
+        if (length != Math.min(expected.length, MAX_SCRIPT_BYTES)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(position + 41 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long countOf(ByteBuffer buffer) {
+        long count = 0;
+        long records = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        while (count < records && buffer.getInt((int) (HEADER_SIZE + count * RECORD_SIZE)) == COMMITTED) {
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean isSegment(ByteBuffer buffer) {
+        return buffer.capacity() >= HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+                && buffer.getInt(8) == RECORD_SIZE;
+    }
+
+    private List<Path> segments() {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        } catch (IOException ex) {
+            log.warn("journal segments could not be listed {}", ex.getMessage());
+            return List.of();
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode, long size) throws IOException {
+        var options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[] { StandardOpenOption.READ }
+                : new StandardOpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE };
+        // the mapping stays valid after the channel is closed
+        try (var channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, size);
+        }
+    }
+
+    // the binary file is the first part of the command with the extension of the os
+    private static int binaryFileIndex(List<String> command) {
+        for (int i = 0; i < command.size(); i++) {
+            if (command.get(i).endsWith(".sh") || command.get(i).endsWith(".bat")) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static String scriptOf(List<String> command, int binaryFile) {
+        if (command.isEmpty()) {
+            return "";
+        }
+        var fileName = Paths.get(command.get(binaryFile)).getFileName();
+        return fileName == null ? command.get(binaryFile) : fileName.toString();
+    }
+
+    // FNV-1a of the arguments, so the same arguments can be found without keeping them
+    private static long argumentHash(List<String> command, int firstArgument) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = firstArgument; i < command.size(); i++) {
+            for (byte b : command.get(i).getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0xff) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ex) {
+            log.debug("journal lock could not be closed {}", ex.getMessage());
+        }
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        // read by the queries, written only by the writer after the record
+        private volatile long count;
+
+        private Segment(Path path, MappedByteBuffer buffer, long count) {
+            this.path = path;
+            this.buffer = buffer;
+            this.count = count;
+        }
+
+        private boolean isFull(long segmentSize) {
+            return HEADER_SIZE + (count + 1) * RECORD_SIZE > segmentSize;
+        }
+    }
+}
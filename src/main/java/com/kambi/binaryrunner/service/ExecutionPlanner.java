@@ -0,0 +1,145 @@
+package com.kambi.binaryrunner.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.jfr.PathResolvedEvent;
+import com.kambi.binaryrunner.model.ExecutionPlan;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.FILE_NOT_FOUND;
+import static com.kambi.binaryrunner.model.CommandExitCode.NOT_COMPATIBLE_WITH_OS;
+import static com.kambi.binaryrunner.service.CommandExecutorBuilderStrategy.UNIX_BASE_SUPERUSER_COMMAND;
+import static com.kambi.binaryrunner.service.CommandExecutorBuilderStrategy.WINDOWS_SUPERUSER_COMMAND;
+
+/*
+ * compiling the requests to immutable execution plans.
+ * the plan of a request is cached, so separating the superuser command,
+ * checking the extension and building the command line are done once for the
+ * repeated identical requests. a cached plan is only used while the binary file
+ * is still resolved to the same path (which is cached by BinaryPathResolver).
+ * at most MAX_ENTRIES plans are kept, the least recently used one is evicted
+ * first so a burst of one-off requests does not throw away the hot plans
+ */
+@Component
+public class ExecutionPlanner {
+    private static final int MAX_ENTRIES = 10_000;
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+    private static final String WINDOWS_OS = "windows";
+    private static final boolean IS_WINDOWS = OS.contains(WINDOWS_OS);
+    private static final String OS_BINARY_EXTENSION = IS_WINDOWS ? ".bat" : ".sh";
+
+    private final CommandExecutorBuilderStrategy commandExecutorBuilder;
+    private final BinaryPathResolver binaryPathResolver;
+    private final BinaryRunnerMetrics metrics;
+    private final long processTimeout;
+    private final Map<PlanKey, ExecutionPlan> plans = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PlanKey, ExecutionPlan> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public ExecutionPlanner(CommandExecutorBuilderStrategy commandExecutorBuilder,
+            BinaryPathResolver binaryPathResolver, BinaryRunnerMetrics metrics,
+            @Value("${running.process.timeout}") long processTimeout) {
+        this.commandExecutorBuilder = commandExecutorBuilder;
+        this.binaryPathResolver = binaryPathResolver;
+        this.metrics = metrics;
+        this.processTimeout = processTimeout;
+    }
+
+    /*
+     * validating the binary file and bringing back the plan for running it, all
+     * the request related errors are thrown here
+     */
+    public ExecutionPlan plan(BinaryRunnerRequest request) throws BinaryRunningException {
+        long startNanos = System.nanoTime();
+        var event = PathResolvedEvent.start();
+        var key = new PlanKey(request.getBinaryFile(), request.getArguments(), request.getTimeout());
+        var plan = lookup(key);
+        boolean cached = true;
+        if (plan == null || !plan.path().equals(binaryPathResolver.resolve(plan.binaryFile()))) {
+            cached = false;
+            plan = compile(request);
+            store(new PlanKey(request.getBinaryFile(), plan.commands().subList(1, plan.commands().size()),
+                    request.getTimeout()), plan);
+        }
+        var script = metrics.scriptTag(plan.binaryFile());
+        metrics.recordPathResolution(script, startNanos);
+        event.finish(script, plan.commands().size() - 1, cached);
+        return plan;
+    }
+
+    // the plan is compiled out of the lock, an identical request may compile it at the same time
+    private synchronized ExecutionPlan lookup(PlanKey key) {
+        return plans.get(key);
+    }
+
+    private synchronized void store(PlanKey key, ExecutionPlan plan) {
+        plans.put(key, plan);
+    }
+
+    private ExecutionPlan compile(BinaryRunnerRequest request) throws BinaryRunningException {
+        var binaryFile = request.getBinaryFile().trim();
+        boolean superUser = false;
+        // separating the run by super user command from the real binary file name and path
+        if (IS_WINDOWS && startsWithIgnoreCase(binaryFile, WINDOWS_SUPERUSER_COMMAND)) {
+            superUser = true;
+            binaryFile = binaryFile.substring(WINDOWS_SUPERUSER_COMMAND.length()).trim();
+        } else if (startsWithIgnoreCase(binaryFile, UNIX_BASE_SUPERUSER_COMMAND)) {
+            superUser = true;
+            binaryFile = binaryFile.substring(UNIX_BASE_SUPERUSER_COMMAND.length()).trim();
+        }
+
+        if (!binaryFile.endsWith(OS_BINARY_EXTENSION)) {
+            throw new BinaryRunningException(String.valueOf(NOT_COMPATIBLE_WITH_OS.getExitCode()));
+        }
+
+        /*
+         * if binaryFile has no path, the current working directory and the user's
+         * home directory are checked respectively (has been handled by
+         * BinaryPathResolver)
+         */
+        var path = binaryPathResolver.resolve(binaryFile);
+        if (path == null) {
+            throw new BinaryRunningException(String.valueOf(FILE_NOT_FOUND.getExitCode()));
+        }
+
+        List<String> commands = new ArrayList<>();
+        commands.add(path);
+        var args = request.getArguments();
+        if (args != null && !args.isEmpty()) {
+            commands.addAll(args);
+        }
+
+        // create command line based on os
+        var argv = commandExecutorBuilder.commandExecuterBuilder(superUser, commands).command();
+        return new ExecutionPlan(binaryFile, superUser, Collections.unmodifiableList(commands),
+                Collections.unmodifiableList(new ArrayList<>(argv)), timeoutOf(request.getTimeout()));
+    }
+
+    // the timeout requested by the client, at most the process timeout of the server
+    private long timeoutOf(Long timeout) {
+        return timeout == null ? processTimeout : Math.min(timeout, processTimeout);
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    // a missing and an empty list of arguments are the same, see compile()
+    private record PlanKey(String binaryFile, List<String> arguments, Long timeout) {
+        PlanKey {
+            arguments = arguments == null ? List.of() : arguments;
+        }
+    }
+}
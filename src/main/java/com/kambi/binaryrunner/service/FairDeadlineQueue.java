@@ -0,0 +1,248 @@
+package com.kambi.binaryrunner.service;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * bounded waiting queue of the process pool which shares the free slots between
+ * the clients by their weight (stride scheduling, a weighted fair queuing).
+ * every client with waiting tasks has a pass, the client with the smallest pass
+ * is served next and its pass grows by 1 / weight. a client which starts waiting
+ * again gets at least the pass of the last served client, so an idle client can
+ * not save up turns. tasks of the same client are served earliest deadline first
+ */
+class FairDeadlineQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Map<String, ClientQueue> clients = new HashMap<>();
+    private final PriorityQueue<ClientQueue> waiting = new PriorityQueue<>(
+            Comparator.comparingDouble(ClientQueue::getPass).thenComparingLong(ClientQueue::getSequence));
+    private double virtualTime;
+    private long sequence;
+    private int size;
+
+    FairDeadlineQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        var task = (DeadlineTask<?>) runnable;
+        lock.lock();
+        try {
+            if (size >= capacity) {
+                return false;
+            }
+            var client = clients.computeIfAbsent(task.getClient(), name -> new ClientQueue());
+            if (client.tasks.isEmpty()) {
+                client.pass = Math.max(client.pass, virtualTime);
+                client.sequence = sequence++;
+                waiting.add(client);
+            }
+            client.tasks.add(task);
+            size++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return size == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable runnable) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size >= capacity) {
+                notFull.await();
+            }
+            offer(runnable);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return offer(runnable);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return size == 0 ? null : waiting.peek().tasks.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof DeadlineTask<?> task)) {
+            return false;
+        }
+        lock.lock();
+        try {
+            var client = clients.get(task.getClient());
+            if (client == null || !client.tasks.remove(task)) {
+                return false;
+            }
+            size--;
+            if (client.tasks.isEmpty()) {
+                waiting.remove(client);
+                clients.remove(task.getClient());
+            }
+            notFull.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> collection, int maxElements) {
+        lock.lock();
+        try {
+            int drained = 0;
+            while (size > 0 && drained < maxElements) {
+                collection.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // a snapshot of the waiting tasks
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> tasks = new ArrayList<>(size);
+            clients.values().forEach(client -> tasks.addAll(client.tasks));
+            return tasks.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Runnable dequeue() {
+        var client = waiting.poll();
+        var task = client.tasks.poll();
+        virtualTime = client.pass;
+        client.pass += 1 / task.getWeight();
+        if (client.tasks.isEmpty()) {
+            clients.remove(task.getClient());
+        } else {
+            waiting.add(client);
+        }
+        size--;
+        notFull.signal();
+        return task;
+    }
+
+    private static class ClientQueue {
+        private final PriorityQueue<DeadlineTask<?>> tasks = new PriorityQueue<>();
+        private double pass;
+        private long sequence;
+
+        double getPass() {
+            return pass;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+    }
+}
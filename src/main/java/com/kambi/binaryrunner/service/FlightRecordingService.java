@@ -0,0 +1,116 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * on demand flight recordings of the service together with the events of the
+ * execution path (com.kambi.binaryrunner.*). at most one recording is kept, it
+ * is stopped after maxDuration so a forgotten one ends by itself and keeps at
+ * most maxSize bytes (the oldest data is dropped). it is written to its file
+ * when it is stopped, a running recording can be dumped at any time without
+ * stopping it
+ */
+@Slf4j
+@Component
+public class FlightRecordingService {
+    private final long maxDuration;
+    private final long maxSize;
+    private final String settings;
+    private Recording recording;
+    private Path file;
+
+    public FlightRecordingService(@Value("${running.jfr.max-duration}") long maxDuration,
+            @Value("${running.jfr.max-size}") long maxSize,
+            @Value("${running.jfr.settings}") String settings) {
+        this.maxDuration = maxDuration;
+        this.maxSize = maxSize;
+        this.settings = settings;
+    }
+
+    /*
+     * starting a new recording for the given milliseconds (maxDuration if it is
+     * not given or is longer), the previous stopped one is dropped. a running
+     * recording is left as it is
+     */
+    public synchronized Recording start(Long duration) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return recording;
+        }
+        close();
+        try {
+            file = Files.createTempFile("binary-runner-", ".jfr");
+            recording = new Recording(Configuration.getConfiguration(settings));
+            recording.setName("binary-runner");
+            recording.setToDisk(true);
+            recording.setMaxSize(maxSize);
+            recording.setDuration(Duration.ofMillis(duration == null ? maxDuration : Math.min(duration, maxDuration)));
+            recording.setDestination(file);
+            recording.start();
+        } catch (IOException ex) {
+            close();
+            throw new UncheckedIOException(ex);
+        } catch (ParseException ex) {
+            close();
+            throw new IllegalStateException("flight recorder settings " + settings + " are not valid", ex);
+        }
+        log.info("flight recording {} has been started into {}", recording.getId(), file);
+        return recording;
+    }
+
+    // stopping the running recording, its file is written and it is closed by the flight recorder
+    public synchronized Recording stop() {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("flight recording {} has been stopped into {}", recording.getId(), file);
+        }
+        return recording;
+    }
+
+    public synchronized Recording getRecording() {
+        return recording;
+    }
+
+    /*
+     * the file of the recording by its id, a running one is dumped up to now.
+     * null if there is no such recording or it has nothing written yet
+     */
+    public synchronized Path fileOf(long id) throws IOException {
+        if (recording == null || recording.getId() != id) {
+            return null;
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.dump(file);
+        }
+        return Files.size(file) > 0 ? file : null;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                log.warn("flight recording file {} could not be deleted {}", file, ex.getMessage());
+            }
+            file = null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+/*
+ * decoding an output stream line by line and passing every line to the consumer
+ * as soon as it is complete. a line longer than maxLineBytes is passed in parts
+ * so a binary file without new lines can not fill the memory.
+ * a chunk is scanned for the line breaks and copied between them at once, not
+ * byte by byte
+ */
+public class LineSplittingOutputStream extends OutputStream {
+    private final Consumer<String> lineConsumer;
+    private final int maxLineBytes;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private boolean lastWasCarriageReturn;
+
+    public LineSplittingOutputStream(Consumer<String> lineConsumer, int maxLineBytes) {
+        this.lineConsumer = lineConsumer;
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int start = offset;
+        for (int i = offset; i < end; i++) {
+            var b = bytes[i];
+            if (b != '\n' && b != '\r') {
+                continue;
+            }
+            if (b == '\n' && i == start && lastWasCarriageReturn) {
+                // second half of a \r\n line break
+                lastWasCarriageReturn = false;
+                start = i + 1;
+                continue;
+            }
+            append(bytes, start, i - start);
+            emit();
+            lastWasCarriageReturn = b == '\r';
+            start = i + 1;
+        }
+        if (start < end) {
+            lastWasCarriageReturn = false;
+            append(bytes, start, end - start);
+        }
+    }
+
+    // the last line may have no line break
+    @Override
+    public void close() {
+        if (line.size() > 0) {
+            emit();
+        }
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        while (line.size() + length >= maxLineBytes && length > 0) {
+            int part = maxLineBytes - line.size();
+            line.write(bytes, offset, part);
+            emit();
+            offset += part;
+            length -= part;
+        }
+        line.write(bytes, offset, length);
+    }
+
+    private void emit() {
+        lineConsumer.accept(line.toString(Charset.defaultCharset()));
+        line.reset();
+    }
+}
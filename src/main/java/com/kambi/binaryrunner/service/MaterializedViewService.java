@@ -0,0 +1,256 @@
+package com.kambi.binaryrunner.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.kambi.binaryrunner.dto.MaterializedViewRequest;
+import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.model.MaterializedView;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.EXECUTION_QUEUE_FULL;
+import static com.kambi.binaryrunner.model.CommandExitCode.INTERNAL_SERVER_ERROR;
+import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
+import static com.kambi.binaryrunner.model.CommandExitCode.TIMEOUT_REACHED;
+import static com.kambi.binaryrunner.model.CommandExitCode.VIEW_NOT_FOUND;
+import static com.kambi.binaryrunner.model.CommandExitCode.VIEW_NOT_OWNED;
+
+/*
+ * running registered binary files on a schedule and keeping their latest
+ * response in memory, so polling clients read it instead of running the binary
+ * file again. a view is refreshed every refreshInterval milliseconds, spread by
+ * the jitter so the views registered together are not refreshed together. a
+ * read of a stale view starts a refresh in the background and is served by the
+ * previous response right away. the same binary file with the same arguments is
+ * one view, views which are not read for idleTimeout milliseconds are removed.
+ * the refreshes are run as the client of the service itself (refreshClient), so
+ * a view shared by many clients never takes the quota of the one registering it
+ */
+@Slf4j
+@Service
+public class MaterializedViewService {
+    private final BinaryRunnerService binaryRunnerService;
+    private final int maxViews;
+    private final long minRefreshInterval;
+    private final double jitter;
+    private final long idleTimeout;
+    private final long processTimeout;
+    private final String refreshClient;
+
+    private final Map<String, MaterializedView> views = new ConcurrentHashMap<>();
+    private final Map<ViewKey, MaterializedView> viewsByKey = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "binary-runner-view-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // a refresh waits for its binary file, at most one refresh per view is running
+    private final ExecutorService refresher = Executors.newCachedThreadPool(runnable -> {
+        var thread = new Thread(runnable, "binary-runner-view-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter succeededCounter;
+    private final Counter failedCounter;
+
+    public MaterializedViewService(BinaryRunnerService binaryRunnerService,
+            @Value("${running.views.max-views}") int maxViews,
+            @Value("${running.views.min-refresh-interval}") long minRefreshInterval,
+            @Value("${running.views.jitter}") double jitter,
+            @Value("${running.views.idle-timeout}") long idleTimeout,
+            @Value("${running.process.timeout}") long processTimeout,
+            @Value("${running.views.client}") String refreshClient,
+            MeterRegistry meterRegistry) {
+        this.binaryRunnerService = binaryRunnerService;
+        this.maxViews = maxViews;
+        this.minRefreshInterval = minRefreshInterval;
+        this.jitter = Math.min(Math.max(jitter, 0), 1);
+        this.idleTimeout = idleTimeout;
+        this.processTimeout = processTimeout;
+        this.refreshClient = refreshClient;
+
+        this.succeededCounter = counter(meterRegistry, "succeeded");
+        this.failedCounter = counter(meterRegistry, "failed");
+        Gauge.builder("binary.runner.views.size", views, Map::size)
+                .description("number of binary files which are run on a schedule")
+                .register(meterRegistry);
+    }
+
+    /*
+     * registering the binary file and starting its first refresh, an already
+     * registered binary file brings back its existing view
+     */
+    public MaterializedView register(MaterializedViewRequest request, String client) throws BinaryRunningException {
+        var runnerRequest = request.toRunnerRequest();
+        binaryRunnerService.prepareExecution(runnerRequest);
+
+        var key = new ViewKey(runnerRequest.getBinaryFile(),
+                runnerRequest.getArguments() == null ? List.of() : runnerRequest.getArguments());
+        MaterializedView view;
+        synchronized (this) {
+            var existing = viewsByKey.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (views.size() >= maxViews) {
+                log.warn("view has been rejected, {} views are registered", views.size());
+                throw new BinaryRunningException(String.valueOf(EXECUTION_QUEUE_FULL.getExitCode()));
+            }
+            view = new MaterializedView(UUID.randomUUID().toString(), runnerRequest, client,
+                    Math.max(request.getRefreshInterval(), minRefreshInterval));
+            views.put(view.getId(), view);
+            viewsByKey.put(key, view);
+        }
+        log.info("view {} has been registered for {}", view.getId(), request.toString());
+        refresh(view);
+        return view;
+    }
+
+    /*
+     * bringing back the latest response of the view. a new view is waited for until
+     * its first refresh is finished, a view without any successful refresh throws
+     * the exit code of its last one
+     */
+    public MaterializedView.Snapshot read(String id) throws BinaryRunningException {
+        var view = getView(id);
+        try {
+            if (!view.awaitFirstRefresh(processTimeout)) {
+                throw new BinaryRunningException(String.valueOf(TIMEOUT_REACHED.getExitCode()));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BinaryRunningException(String.valueOf(INTERNAL_SERVER_ERROR.getExitCode()));
+        }
+
+        long now = System.currentTimeMillis();
+        if (view.isStale(now)) {
+            refresh(view);
+        }
+        var snapshot = view.read(now);
+        if (snapshot.response() == null) {
+            var exitCode = snapshot.exitCode() == null ? VIEW_NOT_FOUND.getExitCode() : snapshot.exitCode();
+            throw new BinaryRunningException(String.valueOf(exitCode));
+        }
+        return snapshot;
+    }
+
+    public MaterializedView getView(String id) throws BinaryRunningException {
+        var view = views.get(id);
+        if (view == null) {
+            throw new BinaryRunningException(String.valueOf(VIEW_NOT_FOUND.getExitCode()));
+        }
+        return view;
+    }
+
+    public Collection<MaterializedView> getViews() {
+        return List.copyOf(views.values());
+    }
+
+    /*
+     * a view is shared by every client reading it, so only the client which has
+     * registered it is able to remove it
+     */
+    public MaterializedView remove(String id, String client) throws BinaryRunningException {
+        var view = getView(id);
+        if (!view.getClient().equals(client)) {
+            log.warn("view {} of {} can not be removed by {}", id, view.getClient(), client);
+            throw new BinaryRunningException(String.valueOf(VIEW_NOT_OWNED.getExitCode()));
+        }
+        unregister(view);
+        log.info("view {} has been removed", id);
+        return view;
+    }
+
+    private void refresh(MaterializedView view) {
+        if (!view.startRefresh()) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    var response = binaryRunnerService.binaryRunner(view.getRequest(), refreshClient);
+                    view.refreshed(response, SUCCESSFUL.getExitCode(), System.currentTimeMillis());
+                    succeededCounter.increment();
+                } catch (BinaryRunningException ex) {
+                    log.warn("view {} could not be refreshed by exit code {}", view.getId(), ex.getMessage());
+                    view.refreshed(null, Integer.parseInt(ex.getMessage()), System.currentTimeMillis());
+                    failedCounter.increment();
+                } catch (RuntimeException ex) {
+                    log.error("view {} could not be refreshed", view.getId(), ex);
+                    view.refreshed(null, INTERNAL_SERVER_ERROR.getExitCode(), System.currentTimeMillis());
+                    failedCounter.increment();
+                } finally {
+                    scheduleNext(view);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // the service is shutting down
+            view.refreshed(null, INTERNAL_SERVER_ERROR.getExitCode(), System.currentTimeMillis());
+        }
+    }
+
+    private void scheduleNext(MaterializedView view) {
+        if (view.isIdle(idleTimeout, System.currentTimeMillis())) {
+            log.info("view {} has not been read for {} milliseconds and has been removed", view.getId(),
+                    idleTimeout);
+            unregister(view);
+            return;
+        }
+        try {
+            view.scheduleNext(timer.schedule(() -> refresh(view), jittered(view.getRefreshInterval()),
+                    TimeUnit.MILLISECONDS));
+        } catch (RejectedExecutionException ex) {
+            log.debug("view {} is not refreshed anymore, the service is shutting down", view.getId());
+        }
+    }
+
+    // a random delay in refreshInterval +- jitter, never shorter than minRefreshInterval
+    private long jittered(long refreshInterval) {
+        double spread = refreshInterval * jitter;
+        if (spread < 1) {
+            return refreshInterval;
+        }
+        return Math.max(minRefreshInterval,
+                refreshInterval + (long) ThreadLocalRandom.current().nextDouble(-spread, spread));
+    }
+
+    private synchronized void unregister(MaterializedView view) {
+        view.close();
+        views.remove(view.getId(), view);
+        viewsByKey.values().remove(view);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        refresher.shutdownNow();
+        views.values().forEach(MaterializedView::close);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("binary.runner.views.refreshes")
+                .description("number of scheduled runs of the registered binary files")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record ViewKey(String binaryFile, List<String> arguments) {
+    }
+}
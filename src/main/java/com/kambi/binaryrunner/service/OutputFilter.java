@@ -0,0 +1,230 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.model.CapturedOutput;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.INVALID_GREP;
+
+/*
+ * the server side projection of the output of a binary file, applied line by
+ * line while the output is read, so the lines which are not asked for are never
+ * kept. grep keeps the lines matching the regular expression, head keeps the
+ * first kept lines and tail the last ones, maxLines stops reading after that
+ * many lines of the output whether they match or not, and countOnly writes the
+ * number of the kept lines instead of them (like grep -c).
+ * when head or maxLines is reached LimitReachedException is thrown to the
+ * reader of the output, so the binary file is stopped instead of being read
+ * until its end.
+ * the regular expression of the client may backtrack for ages on a line, so it
+ * is matched against a view of the line which throws MatchCancelledException
+ * when the thread is interrupted (the execution is cancelled at its deadline) or
+ * the deadline of the filter is reached
+ */
+public record OutputFilter(Pattern grep, Integer head, Integer tail, Integer maxLines, boolean countOnly) {
+    public static final OutputFilter NONE = new OutputFilter(null, null, null, null, false);
+
+    // the grep of a request which has not been validated (e.g. a stored view) is rejected by INVALID_GREP
+    public static OutputFilter of(BinaryRunnerRequest request) throws BinaryRunningException {
+        var filter = new OutputFilter(compile(request.getGrep()), request.getHead(), request.getTail(),
+                request.getMaxLines(), Boolean.TRUE.equals(request.getCountOnly()));
+        return filter.isEmpty() ? NONE : filter;
+    }
+
+    private static Pattern compile(String grep) throws BinaryRunningException {
+        if (grep == null) {
+            return null;
+        }
+        try {
+            return Pattern.compile(grep);
+        } catch (PatternSyntaxException ex) {
+            throw new BinaryRunningException(String.valueOf(INVALID_GREP.getExitCode()));
+        }
+    }
+
+    public boolean isEmpty() {
+        return grep == null && head == null && tail == null && maxLines == null && !countOnly;
+    }
+
+    /*
+     * the kept lines are written to the output, every one of them ended by \n. it
+     * is written by the task of the execution, so only its cancellation stops a
+     * match
+     */
+    public OutputStream wrap(OutputStream output, int maxLineBytes) {
+        return wrap(output, maxLineBytes, Long.MAX_VALUE);
+    }
+
+    private OutputStream wrap(OutputStream output, int maxLineBytes, long deadline) {
+        if (isEmpty()) {
+            return output;
+        }
+        return new FilteringOutputStream(output, maxLineBytes, deadline);
+    }
+
+    /*
+     * filtering an output which has already been captured (e.g. by the result
+     * cache), it is truncated if the captured one has been truncated. nothing
+     * cancels the caller, so the filter gives up by MatchCancelledException after
+     * the given timeout in milliseconds
+     */
+    public CapturedOutput apply(CapturedOutput output, BoundedOutputBuffer buffer, int maxLineBytes, long timeout) {
+        if (isEmpty()) {
+            return output;
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        try (var filtered = wrap(buffer, maxLineBytes, deadline)) {
+            filtered.write(output.data());
+        } catch (LimitReachedException ex) {
+            // the rest of the captured output is not needed
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        var result = buffer.toCapturedOutput();
+        return new CapturedOutput(result.data(), result.totalBytes(), result.truncated() || output.truncated());
+    }
+
+    /*
+     * thrown by the filter when it needs nothing more (or by the sink of a stream
+     * whose client is gone), it has no stack trace since it is thrown for stopping
+     * the reader and not for reporting an error
+     */
+    public static class LimitReachedException extends RuntimeException {
+        LimitReachedException() {
+            super("the output filter has reached its limit", null, false, false);
+        }
+    }
+
+    // thrown by the match of a line when the thread is interrupted or the deadline is reached
+    public static class MatchCancelledException extends RuntimeException {
+        private MatchCancelledException() {
+            super("the match of the output filter has been cancelled", null, false, false);
+        }
+    }
+
+    /*
+     * the line seen by the matcher, the interruption and the deadline are checked
+     * once every CHECK_INTERVAL characters read by it so a sane match pays nearly
+     * nothing for them
+     */
+    private static class CancellableLine implements CharSequence {
+        private static final int CHECK_INTERVAL = 1024;
+        private final String line;
+        private final long deadline;
+        private int reads;
+
+        private CancellableLine(String line, long deadline) {
+            this.line = line;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++reads % CHECK_INTERVAL == 0
+                    && (Thread.currentThread().isInterrupted() || System.currentTimeMillis() > deadline)) {
+                throw new MatchCancelledException();
+            }
+            return line.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return line.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new CancellableLine(line.substring(start, end), deadline);
+        }
+
+        @Override
+        public String toString() {
+            return line;
+        }
+    }
+
+    private class FilteringOutputStream extends OutputStream {
+        private final OutputStream output;
+        private final LineSplittingOutputStream lines;
+        private final ArrayDeque<String> lastLines = new ArrayDeque<>();
+        private final long deadline;
+        private long read;
+        private long kept;
+        private boolean finished;
+
+        private FilteringOutputStream(OutputStream output, int maxLineBytes, long deadline) {
+            this.output = output;
+            this.deadline = deadline;
+            this.lines = new LineSplittingOutputStream(this::accept, maxLineBytes);
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (finished) {
+                throw new LimitReachedException();
+            }
+            lines.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (output) {
+                lines.close();
+                for (var line : lastLines) {
+                    writeLine(line);
+                }
+                if (countOnly) {
+                    writeLine(String.valueOf(kept));
+                }
+            }
+        }
+
+        private void accept(String line) {
+            if (finished) {
+                return;
+            }
+            read++;
+            if (grep == null || grep.matcher(new CancellableLine(line, deadline)).find()) {
+                kept++;
+                if (!countOnly && tail == null) {
+                    writeLine(line);
+                } else if (!countOnly) {
+                    if (lastLines.size() == tail) {
+                        lastLines.removeFirst();
+                    }
+                    lastLines.addLast(line);
+                }
+            }
+            if ((head != null && kept >= head) || (maxLines != null && read >= maxLines)) {
+                finished = true;
+                throw new LimitReachedException();
+            }
+        }
+
+        private void writeLine(String line) {
+            try {
+                output.write((line + "\n").getBytes(Charset.defaultCharset()));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
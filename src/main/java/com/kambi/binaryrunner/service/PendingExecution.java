@@ -0,0 +1,21 @@
+package com.kambi.binaryrunner.service;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.kambi.binaryrunner.model.BinaryRunnerResult;
+import com.kambi.binaryrunner.model.ExecutionPlan;
+import com.kambi.binaryrunner.model.ResourceUsage;
+
+/*
+ * a binary file started by BinaryRunnerService.startExecution. result is set
+ * when it is finished without running (served from the cache or rejected),
+ * cacheFilter is set when the whole output is cached and filtered afterwards
+ */
+record PendingExecution(BinaryRunnerResult result, ProcessExecution execution, ExecutionPlan plan,
+        OutputFilter cacheFilter, BoundedOutputBuffer stdout, BoundedOutputBuffer stderr,
+        AtomicReference<ResourceUsage> usage, long baseline, long startTime) {
+
+    static PendingExecution completed(BinaryRunnerResult result) {
+        return new PendingExecution(result, null, null, null, null, null, null, 0, 0);
+    }
+}
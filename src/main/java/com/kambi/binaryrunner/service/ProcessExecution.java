@@ -0,0 +1,79 @@
+package com.kambi.binaryrunner.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * an execution submitted to the process pool, cancelling it stops the task and
+ * destroys the process trees (every stage of a pipeline) even if a process is
+ * started after the cancellation.
+ * the deadline is the submission time plus the timeout of the execution
+ */
+class ProcessExecution {
+    private final ProcessRegistry processRegistry;
+    private final long startTime;
+    private final long deadline;
+    private Future<Integer> future;
+    private final List<Process> processes = new ArrayList<>();
+    // the first process of the execution, or null if it is finished without any
+    private final CompletableFuture<Process> started = new CompletableFuture<>();
+    private boolean cancelled;
+
+    ProcessExecution(ProcessRegistry processRegistry, long timeout) {
+        this.processRegistry = processRegistry;
+        this.startTime = System.currentTimeMillis();
+        this.deadline = startTime + timeout;
+    }
+
+    long getStartTime() {
+        return startTime;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    long remaining() {
+        return Math.max(0, deadline - System.currentTimeMillis());
+    }
+
+    synchronized Future<Integer> getFuture() {
+        return future;
+    }
+
+    synchronized void setFuture(Future<Integer> future) {
+        this.future = future;
+        if (future.isDone()) {
+            started.complete(null);
+        }
+    }
+
+    synchronized void attach(Process process) {
+        processes.add(process);
+        started.complete(process);
+        if (cancelled) {
+            processRegistry.destroyTree(process);
+        }
+    }
+
+    // called when the task of the execution is done, cancelled or rejected
+    void finished() {
+        started.complete(null);
+    }
+
+    // waiting until the deadline for the first process, null if none is started
+    Process awaitStart() throws InterruptedException, ExecutionException, TimeoutException {
+        return started.get(remaining(), TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        future.cancel(true);
+        processes.forEach(processRegistry::destroyTree);
+    }
+}
@@ -0,0 +1,118 @@
+package com.kambi.binaryrunner.service;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * shared pool for running the binary files.
+ * at most maxConcurrent processes are running at the same time and at most
+ * queueCapacity executions are waiting for a free slot, the rest of submissions
+ * are rejected immediately, so a burst of requests can not exhaust the host.
+ * the free slots are shared between the clients by their weight and the waiting
+ * executions of a client are started earliest deadline first, the ones without
+ * a deadline (e.g. background jobs) by their submission order after them
+ */
+@Slf4j
+@Component
+public class ProcessExecutionScheduler {
+    private static final String QUEUE_NAME = "process";
+
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService drainExecutor;
+    private final Counter rejectedCounter;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ProcessExecutionScheduler(@Value("${running.process.max-concurrent}") int maxConcurrent,
+            @Value("${running.process.queue-capacity}") int queueCapacity,
+            @Qualifier("processThreadFactory") ThreadFactory threadFactory,
+            MeterRegistry meterRegistry) {
+
+        BlockingQueue<Runnable> queue = queueCapacity > 0
+                ? new FairDeadlineQueue(queueCapacity)
+                : new SynchronousQueue<>();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                queue, threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        // every running process has at most one extra stream to drain
+        this.drainExecutor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        log.info("process execution pool created with {} running slots and {} waiting slots",
+                maxConcurrent, queueCapacity);
+
+        Gauge.builder("binary.runner.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("number of binary files that are running")
+                .tag("queue", QUEUE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("binary.runner.executor.queued", executor, e -> e.getQueue().size())
+                .description("number of binary files that are waiting for a free running slot")
+                .tag("queue", QUEUE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("binary.runner.executor.completed", executor, ThreadPoolExecutor::getCompletedTaskCount)
+                .description("number of binary file executions that have been finished")
+                .tag("queue", QUEUE_NAME)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("binary.runner.executor.rejected")
+                .description("number of binary file executions rejected because the queue was full")
+                .tag("queue", QUEUE_NAME)
+                .register(meterRegistry);
+    }
+
+    public <T> Future<T> submit(Callable<T> task) throws RejectedExecutionException {
+        return submit(task, Long.MAX_VALUE);
+    }
+
+    public <T> Future<T> submit(Callable<T> task, long deadline) throws RejectedExecutionException {
+        return submit(task, deadline, ClientQuotas.ANONYMOUS, 1, () -> {
+        });
+    }
+
+    /*
+     * the deadline is in epoch milliseconds, onDone runs exactly once when the
+     * task is finished, cancelled or rejected. cancelling a waiting task frees its
+     * waiting slot at once
+     */
+    public <T> Future<T> submit(Callable<T> task, long deadline, String client, double weight, Runnable onDone)
+            throws RejectedExecutionException {
+        var future = new DeadlineTask<>(task, deadline, sequence.getAndIncrement(), client, weight, onDone,
+                executor::remove);
+        try {
+            executor.execute(future);
+            return future;
+        } catch (RejectedExecutionException ex) {
+            onDone.run();
+            rejectedCounter.increment();
+            log.warn("execution has been rejected, running: {} waiting: {}", executor.getActiveCount(),
+                    executor.getQueue().size());
+            throw ex;
+        }
+    }
+
+    // reading an extra output stream of a running process
+    public Future<?> drain(Runnable task) {
+        return drainExecutor.submit(task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        drainExecutor.shutdownNow();
+    }
+}
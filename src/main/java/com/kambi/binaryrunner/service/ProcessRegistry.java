@@ -0,0 +1,188 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * keeping track of every started process and the processes forked by it.
+ * a process tree is destroyed deepest first, politely at first and forcibly
+ * after the grace period. the descendants are remembered with their depth while
+ * their parent is alive, because after the parent exits they are moved under
+ * init and can not be reached by children() anymore. when the process exits,
+ * the ones forked by a remembered descendant since the last sample are still
+ * reachable through it, so they are remembered right away instead of at the
+ * release. the reaper destroys whatever is left behind by a finished process
+ */
+@Slf4j
+@Component
+public class ProcessRegistry {
+    private final long gracePeriod;
+    private final Map<Long, TrackedProcess> processes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "binary-runner-process-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProcessRegistry(@Value("${running.process.destroy-grace-period}") long gracePeriod,
+            @Value("${running.process.reaper-interval}") long reaperInterval,
+            MeterRegistry meterRegistry) {
+        this.gracePeriod = gracePeriod;
+        reaper.scheduleWithFixedDelay(this::reap, reaperInterval, reaperInterval, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("binary.runner.process.live", this, ProcessRegistry::liveCount)
+                .description("number of alive processes started by the binary files, including their children")
+                .register(meterRegistry);
+    }
+
+    public void register(Process process) {
+        var tracked = new TrackedProcess(process, new ConcurrentHashMap<>(), new AtomicBoolean());
+        processes.put(process.pid(), tracked);
+        process.onExit().thenRun(() -> remember(tracked));
+    }
+
+    /*
+     * called when the execution of the process is finished, the children which
+     * are still alive have been leaked by the binary file and are destroyed. the
+     * process itself is alive only if its execution has been interrupted
+     */
+    public void release(Process process) {
+        var tracked = processes.remove(process.pid());
+        if (tracked == null) {
+            return;
+        }
+        var descendants = remember(tracked).stream().filter(ProcessHandle::isAlive).toList();
+        destroy(descendants, process.isAlive() ? process : null);
+        closePipes(process);
+    }
+
+    // destroying the process and all of its descendants
+    public void destroyTree(Process process) {
+        var tracked = processes.get(process.pid());
+        var descendants = tracked == null ? untracked(process) : remember(tracked);
+        log.info("destroying process {} and its {} children", process.pid(), descendants.size());
+        destroy(descendants, process);
+        closePipes(process);
+    }
+
+    public int liveCount() {
+        return processes.values().stream()
+                .mapToInt(tracked -> (tracked.process().isAlive() ? 1 : 0)
+                        + (int) tracked.descendants().keySet().stream().filter(ProcessHandle::isAlive).count())
+                .sum();
+    }
+
+    private void destroy(List<ProcessHandle> descendants, Process process) {
+        if (descendants.isEmpty() && process == null) {
+            return;
+        }
+        descendants.forEach(ProcessHandle::destroy);
+        if (process != null) {
+            process.destroy();
+        }
+        reaper.schedule(() -> {
+            descendants.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+            if (process != null && process.isAlive()) {
+                log.warn("process {} has not been stopped in {} milliseconds, killing it", process.pid(), gracePeriod);
+                process.destroyForcibly();
+            }
+        }, gracePeriod, TimeUnit.MILLISECONDS);
+    }
+
+    private List<ProcessHandle> remember(TrackedProcess tracked) {
+        var descendants = tracked.descendants();
+        if (tracked.process().isAlive()) {
+            walk(tracked.process().toHandle(), 1, descendants);
+        } else {
+            for (var descendant : List.copyOf(descendants.entrySet())) {
+                walk(descendant.getKey(), descendant.getValue() + 1, descendants);
+            }
+        }
+        return deepestFirst(descendants);
+    }
+
+    private static List<ProcessHandle> untracked(Process process) {
+        Map<ProcessHandle, Integer> descendants = new HashMap<>();
+        walk(process.toHandle(), 1, descendants);
+        return deepestFirst(descendants);
+    }
+
+    private static void walk(ProcessHandle parent, int depth, Map<ProcessHandle, Integer> descendants) {
+        parent.children().forEach(child -> {
+            descendants.merge(child, depth, Math::max);
+            walk(child, depth + 1, descendants);
+        });
+    }
+
+    /*
+     * a process id says nothing about the position in the tree (ids wrap around),
+     * so the depth is used. nothing is able to fork again while its parent is
+     * stopped
+     */
+    private static List<ProcessHandle> deepestFirst(Map<ProcessHandle, Integer> descendants) {
+        return descendants.entrySet().stream()
+                .sorted(Map.Entry.<ProcessHandle, Integer>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private void reap() {
+        try {
+            for (var tracked : processes.values()) {
+                if (tracked.process().isAlive()) {
+                    remember(tracked);
+                } else if (!tracked.finishedSeen().getAndSet(true)) {
+                    // its execution may be still reading the rest of the output, check it again next time
+                    continue;
+                } else if (processes.remove(tracked.process().pid(), tracked)) {
+                    // finished but never released, its execution has been abandoned
+                    log.warn("reaping abandoned process {}", tracked.process().pid());
+                    destroy(remember(tracked).stream().filter(ProcessHandle::isAlive).toList(), null);
+                    closePipes(tracked.process());
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.error("reaping processes has been failed", ex);
+        }
+    }
+
+    private static void closePipes(Process process) {
+        close(process.getOutputStream());
+        close(process.getInputStream());
+        close(process.getErrorStream());
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ex) {
+            // nothing is left to do with a broken pipe
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        processes.values().forEach(tracked -> destroyTree(tracked.process()));
+        reaper.shutdown();
+    }
+
+    private record TrackedProcess(Process process, Map<ProcessHandle, Integer> descendants,
+            AtomicBoolean finishedSeen) {
+    }
+}
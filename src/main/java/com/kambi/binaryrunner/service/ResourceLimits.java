@@ -0,0 +1,51 @@
+package com.kambi.binaryrunner.service;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+ * cpu time (seconds) and virtual memory (kilobytes) limits of the binary files,
+ * by their file name (e.g. report.sh:10). a binary file without a limit runs
+ * unlimited
+ */
+public record ResourceLimits(Map<String, Long> cpuTime, Map<String, Long> memory) {
+    public static final ResourceLimits NONE = new ResourceLimits(Map.of(), Map.of());
+
+    public static ResourceLimits parse(String cpuTime, String memory) {
+        return new ResourceLimits(parse(cpuTime), parse(memory));
+    }
+
+    public boolean isEmpty() {
+        return cpuTime.isEmpty() && memory.isEmpty();
+    }
+
+    // the ulimit commands of the binary file, empty if it has no limit
+    public List<String> ulimitsOf(String binaryFile) {
+        var fileName = Paths.get(binaryFile).getFileName();
+        var script = fileName == null ? binaryFile : fileName.toString();
+        List<String> ulimits = new ArrayList<>();
+        var cpu = cpuTime.get(script);
+        if (cpu != null) {
+            // SIGXCPU is sent at the soft limit, SIGKILL one second later at the hard one
+            ulimits.add("ulimit -t " + (cpu + 1));
+            ulimits.add("ulimit -S -t " + cpu);
+        }
+        var virtualMemory = memory.get(script);
+        if (virtualMemory != null) {
+            ulimits.add("ulimit -v " + virtualMemory);
+        }
+        return ulimits;
+    }
+
+    private static Map<String, Long> parse(String pairs) {
+        return Arrays.stream(pairs.split(","))
+                .map(String::trim)
+                .filter(pair -> pair.contains(":"))
+                .map(pair -> pair.split(":", 2))
+                .collect(Collectors.toUnmodifiableMap(pair -> pair[0].trim(), pair -> Long.valueOf(pair[1].trim())));
+    }
+}
@@ -0,0 +1,217 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kambi.binaryrunner.model.ResourceUsage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * sampling the resources used by the process tree of the running binary files.
+ * on linux every process of the tree is read from /proc/<pid>/stat, status and
+ * io, elsewhere only the cpu time is known by ProcessHandle.Info.
+ * the cpu time and the io of a process include the ones of its finished children
+ * (cutime, cstime and the io of reaped children), so the sum over the alive
+ * processes of the tree only grows and its highest sample is the usage of the
+ * tree. the last sampleInterval milliseconds of the binary file are not seen,
+ * so the usage of a short binary file is a lower bound.
+ * a binary file run by a shell worker is a reaped child of the long-lived worker,
+ * so its cpu time and io are the growth of the counters of the worker tree while
+ * it runs. the memory of the worker itself is not the one of the binary file, so
+ * only its children are counted in the peak memory
+ */
+@Slf4j
+@Component
+public class ResourceUsageMonitor {
+    private static final Path PROC = Path.of("/proc");
+    // USER_HZ, the unit of the times in /proc/<pid>/stat, is 100 on every linux platform
+    private static final long MILLIS_PER_TICK = 10;
+    private static final long PAGE_SIZE = 4096;
+
+    private final boolean enabled;
+    private final long sampleInterval;
+    private final boolean procAvailable = Files.isDirectory(PROC.resolve("self"));
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "binary-runner-usage-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ResourceUsageMonitor(@Value("${running.usage.enabled}") boolean enabled,
+            @Value("${running.usage.sample-interval}") long sampleInterval) {
+        this.enabled = enabled;
+        this.sampleInterval = sampleInterval;
+    }
+
+    // starts sampling the tree of the process until the tracker is stopped
+    public Tracker track(Process process) {
+        return schedule(new Tracker(process.toHandle(), false));
+    }
+
+    // starts sampling the usage of the next binary file run by the worker until the tracker is stopped
+    public Tracker trackWorker(Process worker) {
+        var tracker = new Tracker(worker.toHandle(), true);
+        if (enabled) {
+            tracker.startFromCurrentUsage();
+        }
+        return schedule(tracker);
+    }
+
+    private Tracker schedule(Tracker tracker) {
+        if (!enabled) {
+            return tracker;
+        }
+        try {
+            tracker.sampling = sampler.scheduleWithFixedDelay(tracker::sample, sampleInterval, sampleInterval,
+                    TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            log.debug("usage of the process {} is not sampled, the monitor is shutting down", tracker.root.pid());
+        }
+        return tracker;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+
+    public class Tracker {
+        private final ProcessHandle root;
+        // the root is a shell worker, whose own memory is not counted
+        private final boolean worker;
+        private Future<?> sampling;
+        private boolean sampled;
+        private long userTicks;
+        private long systemTicks;
+        private long cpuNanos;
+        private long peakRss;
+        private long readBytes;
+        private long writeBytes;
+        // the counters of the worker tree before the binary file is run
+        private long baseUserTicks;
+        private long baseSystemTicks;
+        private long baseCpuNanos;
+        private long baseReadBytes;
+        private long baseWriteBytes;
+
+        private Tracker(ProcessHandle root, boolean worker) {
+            this.root = root;
+            this.worker = worker;
+        }
+
+        private synchronized void startFromCurrentUsage() {
+            sample();
+            baseUserTicks = userTicks;
+            baseSystemTicks = systemTicks;
+            baseCpuNanos = cpuNanos;
+            baseReadBytes = readBytes;
+            baseWriteBytes = writeBytes;
+            peakRss = 0;
+            sampled = false;
+        }
+
+        /*
+         * stopping the sampling, the tree is sampled once more if it is alive, so it
+         * is stopped as soon as the output of the binary file is finished. null if
+         * the usage is not tracked or the tree has never been sampled
+         */
+        public synchronized ResourceUsage stop() {
+            if (sampling == null) {
+                return null;
+            }
+            if (!sampling.isCancelled()) {
+                sampling.cancel(false);
+                sample();
+            }
+            return usage();
+        }
+
+        private synchronized void sample() {
+            if (!root.isAlive()) {
+                return;
+            }
+            List<ProcessHandle> tree = Stream.concat(Stream.of(root), root.descendants()).toList();
+            if (!procAvailable) {
+                cpuNanos = Math.max(cpuNanos, tree.stream()
+                        .mapToLong(handle -> handle.info().totalCpuDuration().map(Duration::toNanos).orElse(0L))
+                        .sum());
+                sampled = true;
+                return;
+            }
+
+            long user = 0, system = 0, rss = 0, read = 0, write = 0;
+            for (var handle : tree) {
+                var dir = PROC.resolve(String.valueOf(handle.pid()));
+                var stat = readStat(dir);
+                if (stat == null) {
+                    // finished since the tree has been listed, counted by its parent
+                    continue;
+                }
+                user += Long.parseLong(stat[11]) + Long.parseLong(stat[13]);
+                system += Long.parseLong(stat[12]) + Long.parseLong(stat[14]);
+                if (!worker || !handle.equals(root)) {
+                    rss += Long.parseLong(stat[21]) * PAGE_SIZE;
+                    peakRss = Math.max(peakRss, readField(dir.resolve("status"), "VmHWM:") * 1024);
+                }
+                read += readField(dir.resolve("io"), "read_bytes:");
+                write += readField(dir.resolve("io"), "write_bytes:");
+            }
+            userTicks = Math.max(userTicks, user);
+            systemTicks = Math.max(systemTicks, system);
+            peakRss = Math.max(peakRss, rss);
+            readBytes = Math.max(readBytes, read);
+            writeBytes = Math.max(writeBytes, write);
+            sampled = true;
+        }
+
+        private synchronized ResourceUsage usage() {
+            if (!sampled) {
+                return null;
+            }
+            if (!procAvailable) {
+                return new ResourceUsage(TimeUnit.NANOSECONDS.toMillis(cpuNanos - baseCpuNanos), null, null, null,
+                        null, null);
+            }
+            long userTime = (userTicks - baseUserTicks) * MILLIS_PER_TICK;
+            long systemTime = (systemTicks - baseSystemTicks) * MILLIS_PER_TICK;
+            return new ResourceUsage(userTime + systemTime, userTime, systemTime, peakRss, readBytes - baseReadBytes,
+                    writeBytes - baseWriteBytes);
+        }
+    }
+
+    // the fields of /proc/<pid>/stat after the command name, which may contain spaces
+    private static String[] readStat(Path dir) {
+        try {
+            var stat = Files.readString(dir.resolve("stat"));
+            return stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    // the number of the line starting by the name, 0 if it is not readable
+    private static long readField(Path file, String name) {
+        try (var lines = Files.lines(file)) {
+            return lines.filter(line -> line.startsWith(name))
+                    .findFirst()
+                    .map(line -> Long.parseLong(line.substring(name.length()).trim().split("\\s+")[0]))
+                    .orElse(0L);
+        } catch (IOException | RuntimeException ex) {
+            return 0;
+        }
+    }
+}
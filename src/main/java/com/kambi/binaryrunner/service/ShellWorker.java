@@ -0,0 +1,175 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.FILE_PERMISSION_DENIED;
+
+/*
+ * a long living shell which runs binary files one after another.
+ * a request is the number of the arguments and then every argument in its own
+ * line. the output of the binary file is written as it is, followed by a new line,
+ * the random token of the worker and the exit code, so no output is able to fake
+ * the end of the response. the error output is written to a file of the worker
+ * and the standard input of the binary file is /dev/null, so nothing is able to
+ * read the next request
+ */
+public class ShellWorker {
+    private static final String PERMISSION_DENIED = "denied";
+    private static final String SCRIPT = """
+            token=$1
+            errors=$2
+            while IFS= read -r count; do
+                set --
+                while [ "$count" -gt 0 ]; do
+                    IFS= read -r arg
+                    set -- "$@" "$arg"
+                    count=$((count - 1))
+                done
+                if [ $# -eq 0 ]; then
+                    code=0
+                elif [ ! -x "$1" ]; then
+                    code=%s
+                else
+                    "$@" </dev/null 2>"$errors"
+                    code=$?
+                fi
+                printf '\\n%%s %%s\\n' "$token" "$code"
+            done
+            """.formatted(PERMISSION_DENIED);
+
+    private final Process process;
+    private final Path errorFile;
+    private final byte[] delimiter;
+    private final OutputStream requests;
+    private final InputStream responses;
+    private int jobs;
+
+    private ShellWorker(Process process, Path errorFile, String token) {
+        this.process = process;
+        this.errorFile = errorFile;
+        this.delimiter = ("\n" + token + " ").getBytes(StandardCharsets.UTF_8);
+        this.requests = process.getOutputStream();
+        this.responses = new BufferedInputStream(process.getInputStream());
+    }
+
+    static ShellWorker start() throws IOException {
+        var token = UUID.randomUUID().toString();
+        var errorFile = Files.createTempFile("binary-runner-worker", ".err");
+        try {
+            var process = new ProcessBuilder("sh", "-c", SCRIPT, "shell-worker", token, errorFile.toString())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return new ShellWorker(process, errorFile, token);
+        } catch (IOException ex) {
+            Files.deleteIfExists(errorFile);
+            throw ex;
+        }
+    }
+
+    public Process getProcess() {
+        return process;
+    }
+
+    int getJobs() {
+        return jobs;
+    }
+
+    /*
+     * running the command and copying its output and error output to the given
+     * streams, the exit code of the command is returned
+     */
+    public int execute(List<String> command, OutputStream stdout, OutputStream stderr) throws IOException {
+        jobs++;
+        send(command);
+        var status = readResponse(stdout);
+        try (var errors = Files.newInputStream(errorFile)) {
+            errors.transferTo(stderr);
+        }
+        if (PERMISSION_DENIED.equals(status)) {
+            return FILE_PERMISSION_DENIED.getExitCode();
+        }
+        return Integer.parseInt(status);
+    }
+
+    // an empty request is answered right away by a healthy worker
+    boolean ping() {
+        try {
+            send(List.of());
+            return "0".equals(readResponse(OutputStream.nullOutputStream()));
+        } catch (IOException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    // a worker is reused only if nothing started by the previous binary file is alive
+    boolean isClean() {
+        return process.isAlive() && process.descendants().findAny().isEmpty();
+    }
+
+    void deleteErrorFile() {
+        try {
+            Files.deleteIfExists(errorFile);
+        } catch (IOException ex) {
+            // the temporary file is removed by the os at last
+        }
+    }
+
+    private void send(List<String> command) throws IOException {
+        var request = new StringBuilder().append(command.size()).append('\n');
+        command.forEach(arg -> request.append(arg).append('\n'));
+        requests.write(request.toString().getBytes(StandardCharsets.UTF_8));
+        requests.flush();
+    }
+
+    /*
+     * copying the output until the delimiter, the bytes which may be the start of
+     * the delimiter are held back until they are known, they are always a prefix of
+     * the delimiter so it is written instead of them
+     */
+    private String readResponse(OutputStream stdout) throws IOException {
+        byte[] chunk = new byte[8192];
+        int matched = 0;
+        StringBuilder status = null;
+        while (true) {
+            int length = responses.read(chunk);
+            if (length == -1) {
+                throw new EOFException("shell worker " + process.pid() + " has been exited");
+            }
+            int start = 0;
+            for (int i = 0; i < length; i++) {
+                byte current = chunk[i];
+                if (status != null) {
+                    if (current == '\n') {
+                        return status.toString();
+                    }
+                    status.append((char) current);
+                } else if (current == delimiter[matched]) {
+                    if (matched == 0) {
+                        stdout.write(chunk, start, i - start);
+                    }
+                    matched++;
+                    start = i + 1;
+                    if (matched == delimiter.length) {
+                        status = new StringBuilder();
+                    }
+                } else if (matched > 0) {
+                    stdout.write(delimiter, 0, matched);
+                    matched = current == delimiter[0] ? 1 : 0;
+                    start = matched == 1 ? i + 1 : i;
+                }
+            }
+            if (status == null && matched == 0) {
+                stdout.write(chunk, start, length - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.kambi.binaryrunner.service;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.kambi.binaryrunner.service.CommandExecutorBuilderStrategy.UNIX_BASE_SUPERUSER_COMMAND;
+
+/*
+ * pool of pre started shell workers, so a binary file costs a fork of a small
+ * shell instead of a fork of the whole jvm.
+ * a worker is recycled after maxJobs binary files or as soon as its state looks
+ * dirty, e.g. a child of the previous binary file is still alive. if no idle
+ * worker is available or the command can not be sent to a worker (superuser,
+ * custom working directory or redirects, new lines in the arguments) the binary
+ * file is started directly
+ */
+@Slf4j
+@Component
+public class ShellWorkerPool {
+    private static final boolean IS_WINDOWS = System.getProperty("os.name").toLowerCase().contains("windows");
+
+    private final boolean enabled;
+    private final int size;
+    private final int maxJobs;
+    private final ProcessRegistry processRegistry;
+    private final BlockingQueue<ShellWorker> idle;
+    private final AtomicInteger live = new AtomicInteger();
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "binary-runner-shell-workers");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter fallbackCounter;
+    private final MeterRegistry meterRegistry;
+
+    public ShellWorkerPool(@Value("${running.worker.enabled}") boolean enabled,
+            @Value("${running.worker.pool-size}") int size,
+            @Value("${running.worker.max-jobs}") int maxJobs,
+            @Value("${running.worker.health-check-interval}") long healthCheckInterval,
+            ProcessRegistry processRegistry,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled && !IS_WINDOWS && size > 0;
+        this.size = size;
+        this.maxJobs = maxJobs;
+        this.processRegistry = processRegistry;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, size));
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("binary.runner.worker.idle", idle, BlockingQueue::size)
+                .description("number of shell workers waiting for a binary file")
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("binary.runner.worker.fallback")
+                .description("number of binary files started directly because no shell worker was available")
+                .register(meterRegistry);
+
+        if (this.enabled) {
+            replenish();
+            maintenance.scheduleWithFixedDelay(this::checkIdleWorkers, healthCheckInterval, healthCheckInterval,
+                    TimeUnit.MILLISECONDS);
+            log.info("shell worker pool created with {} workers", live.get());
+        }
+    }
+
+    /*
+     * taking an idle worker for the command, null means the command should be
+     * started directly
+     */
+    public ShellWorker acquire(ProcessBuilder processBuilder) {
+        if (!enabled || !isSupported(processBuilder)) {
+            return null;
+        }
+        ShellWorker worker;
+        while ((worker = idle.poll()) != null) {
+            if (worker.isClean()) {
+                return worker;
+            }
+            retire(worker, "unhealthy");
+        }
+        fallbackCounter.increment();
+        return null;
+    }
+
+    // giving back the worker after its binary file, a dirty one is replaced
+    public void release(ShellWorker worker, boolean succeeded) {
+        if (!succeeded) {
+            retire(worker, "failed");
+        } else if (worker.getJobs() >= maxJobs) {
+            retire(worker, "max-jobs");
+        } else if (!worker.isClean()) {
+            retire(worker, "dirty");
+        } else if (!idle.offer(worker)) {
+            retire(worker, "overflow");
+        }
+    }
+
+    private boolean isSupported(ProcessBuilder processBuilder) {
+        var command = processBuilder.command();
+        return !command.isEmpty()
+                && !UNIX_BASE_SUPERUSER_COMMAND.equals(command.get(0))
+                && command.get(0).contains("/")
+                && command.stream().noneMatch(arg -> arg.indexOf('\n') >= 0 || arg.indexOf('\0') >= 0)
+                && processBuilder.directory() == null
+                && !processBuilder.redirectErrorStream()
+                && processBuilder.redirectInput() == ProcessBuilder.Redirect.PIPE
+                && processBuilder.redirectOutput() == ProcessBuilder.Redirect.PIPE
+                && processBuilder.redirectError() == ProcessBuilder.Redirect.PIPE;
+    }
+
+    private void retire(ShellWorker worker, String reason) {
+        retire(worker, reason, true);
+    }
+
+    private void retire(ShellWorker worker, String reason, boolean replace) {
+        log.debug("shell worker {} is retired after {} jobs, reason: {}", worker.getProcess().pid(),
+                worker.getJobs(), reason);
+        meterRegistry.counter("binary.runner.worker.recycled", "reason", reason).increment();
+        processRegistry.release(worker.getProcess());
+        worker.deleteErrorFile();
+        live.decrementAndGet();
+        if (replace && !maintenance.isShutdown()) {
+            maintenance.execute(this::replenish);
+        }
+    }
+
+    private void replenish() {
+        while (live.get() < size) {
+            try {
+                var worker = ShellWorker.start();
+                processRegistry.register(worker.getProcess());
+                live.incrementAndGet();
+                if (!worker.ping() || !idle.offer(worker)) {
+                    retire(worker, "unhealthy", false);
+                    return;
+                }
+            } catch (IOException ex) {
+                log.error("shell worker could not be started {}", ex.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void checkIdleWorkers() {
+        for (int i = idle.size(); i > 0; i--) {
+            var worker = idle.poll();
+            if (worker == null) {
+                return;
+            }
+            if (!worker.isClean() || !worker.ping() || !idle.offer(worker)) {
+                retire(worker, "unhealthy");
+            }
+        }
+        replenish();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+        ShellWorker worker;
+        while ((worker = idle.poll()) != null) {
+            retire(worker, "shutdown");
+        }
+    }
+}
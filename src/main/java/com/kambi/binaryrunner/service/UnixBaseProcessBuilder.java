@@ -5,17 +5,25 @@ import java.util.ArrayList;
 import java.util.List;
 
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 
-@Slf4j
 @RequiredArgsConstructor
 public class UnixBaseProcessBuilder implements CommandExecutorBuilderStrategy{
 
+    private final ResourceLimits limits;
+
+    public UnixBaseProcessBuilder() {
+        this(ResourceLimits.NONE);
+    }
+
     @Override
     public ProcessBuilder commandExecuterBuilder(boolean runWithSuperUser, List<String> commands) {
+        var ulimits = limits.ulimitsOf(commands.get(0));
+        if (!ulimits.isEmpty()) {
+            return new ProcessBuilder(limitedCommand(runWithSuperUser, ulimits, commands));
+        }
+
          //run with super user privilage
         if(runWithSuperUser){
-            log.info("start running {} sh {}", UNIX_BASE_SUPERUSER_COMMAND, commands.toString());
             List<String> finalCommand = new ArrayList<>();
             finalCommand.add(UNIX_BASE_SUPERUSER_COMMAND);
             finalCommand.add("sh");
@@ -24,9 +32,24 @@ public class UnixBaseProcessBuilder implements CommandExecutorBuilderStrategy{
             return new ProcessBuilder(finalCommand);
         }
 
-        log.info("start running {}", commands.toString());
         return new ProcessBuilder(commands);
     }
 
-    
+    /*
+     * the limits are set by a shell which is replaced by the binary file, so they
+     * apply to it and everything forked by it. the file and its arguments are
+     * passed as the positional parameters of the shell and are never parsed by it,
+     * if a limit can not be set the binary file is not run
+     */
+    private List<String> limitedCommand(boolean runWithSuperUser, List<String> ulimits, List<String> commands) {
+        List<String> finalCommand = new ArrayList<>();
+        if (runWithSuperUser) {
+            finalCommand.add(UNIX_BASE_SUPERUSER_COMMAND);
+        }
+        finalCommand.add("sh");
+        finalCommand.add("-c");
+        finalCommand.add(String.join(" && ", ulimits) + (runWithSuperUser ? " && exec sh \"$0\" \"$@\"" : " && exec \"$0\" \"$@\""));
+        finalCommand.addAll(commands);
+        return finalCommand;
+    }
 }
@@ -0,0 +1,188 @@
+package com.kambi.binaryrunner.reactive;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.kambi.binaryrunner.config.ClientIdentificationInterceptor;
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.dto.BinaryRunnerResponse;
+import com.kambi.binaryrunner.dto.BinaryRunnerStreamEvent;
+import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.model.BinaryRunnerResult;
+import com.kambi.binaryrunner.model.CommandExitCode;
+import com.kambi.binaryrunner.model.ExecutionPlan;
+import com.kambi.binaryrunner.model.TruncationMode;
+import com.kambi.binaryrunner.service.BinaryRunnerService;
+import com.kambi.binaryrunner.service.BoundedOutputBuffer;
+import com.kambi.binaryrunner.service.ClientQuotas;
+import com.kambi.binaryrunner.service.ExecutionPlanner;
+
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.CLIENT_RATE_LIMITED;
+import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
+import static com.kambi.binaryrunner.model.CommandExitCode.TIMEOUT_REACHED;
+
+/*
+ * the runner endpoints as webflux handlers, with the same requests, responses and
+ * exit codes as the mvc ones. the client is identified and validated the same
+ * way, only the binary file is run by ReactiveProcessRunner
+ */
+@Slf4j
+@Component
+public class ReactiveBinaryRunnerHandler {
+    private final ExecutionPlanner executionPlanner;
+    private final ReactiveProcessRunner processRunner;
+    private final BinaryRunnerService binaryRunnerService;
+    private final ClientIdentificationInterceptor clientIdentification;
+    private final ClientQuotas clientQuotas;
+    private final Validator validator;
+    private final int maxOutputBytes;
+    private final TruncationMode truncationMode;
+    private final long retryAfter;
+
+    public ReactiveBinaryRunnerHandler(ExecutionPlanner executionPlanner, ReactiveProcessRunner processRunner,
+            BinaryRunnerService binaryRunnerService, ClientIdentificationInterceptor clientIdentification,
+            ClientQuotas clientQuotas, Validator validator,
+            @Value("${running.output.max-bytes}") int maxOutputBytes,
+            @Value("${running.output.truncation}") TruncationMode truncationMode,
+            @Value("${running.limiter.retry-after}") long retryAfter) {
+        this.executionPlanner = executionPlanner;
+        this.processRunner = processRunner;
+        this.binaryRunnerService = binaryRunnerService;
+        this.clientIdentification = clientIdentification;
+        this.clientQuotas = clientQuotas;
+        this.validator = validator;
+        this.maxOutputBytes = maxOutputBytes;
+        this.truncationMode = truncationMode;
+        this.retryAfter = retryAfter;
+    }
+
+    // the output is kept by maxOutputBytes and the whole execution is stopped by Mono.timeout
+    public Mono<ServerResponse> run(ServerRequest request) {
+        return prepare(request).flatMap(prepared -> {
+            var stdout = new BoundedOutputBuffer(maxOutputBytes, truncationMode);
+            return processRunner.execute(prepared.plan(), prepared.client(),
+                    output -> output.doOnNext(chunk -> copy(chunk, stdout)).thenMany(Flux.<Integer>empty()),
+                    exitCode -> exitCode)
+                    .last()
+                    .timeout(Duration.ofMillis(prepared.plan().timeout()), Mono.just(TIMEOUT_REACHED.getExitCode()))
+                    .map(exitCode -> binaryRunnerService.toResponse(new BinaryRunnerResult(exitCode,
+                            exitCode == SUCCESSFUL.getExitCode() ? stdout.toCapturedOutput() : null)))
+                    .flatMap(response -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(response));
+        }).onErrorResume(this::error);
+    }
+
+    /*
+     * every output line is sent as soon as it is read as a new line delimited json
+     * event and the exit code as the trailing one, like the mvc stream endpoint.
+     * the deadline is fixed at the start, so a binary file that keeps writing is
+     * stopped by it as well
+     */
+    public Mono<ServerResponse> stream(ServerRequest request) {
+        return prepare(request).flatMap(prepared -> {
+            long deadline = System.nanoTime() + Duration.ofMillis(prepared.plan().timeout()).toNanos();
+            var untilDeadline = Mono.defer(() -> Mono.delay(Duration.ofNanos(deadline - System.nanoTime())));
+            var events = processRunner.execute(prepared.plan(), prepared.client(),
+                    output -> lines(output).map(BinaryRunnerStreamEvent::output), this::exitEvent)
+                    .timeout(untilDeadline, event -> untilDeadline,
+                            Flux.just(exitEvent(TIMEOUT_REACHED.getExitCode())));
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
+                    .body(events, BinaryRunnerStreamEvent.class);
+        }).onErrorResume(this::error);
+    }
+
+    /*
+     * identifying the client and validating the request, all the request related
+     * errors are raised here, before anything is sent back to the client
+     */
+    private Mono<PreparedRequest> prepare(ServerRequest request) {
+        return Mono.fromCallable(() -> {
+            var client = clientIdentification.identify(name -> request.headers().firstHeader(name));
+            if (!clientQuotas.tryAcquireRate(client)) {
+                throw new BinaryRunningException(String.valueOf(CLIENT_RATE_LIMITED.getExitCode()));
+            }
+            return client;
+        }).zipWith(request.bodyToMono(BinaryRunnerRequest.class))
+                .publishOn(Schedulers.boundedElastic())
+                .map(clientAndBody -> {
+                    var body = clientAndBody.getT2();
+                    var violations = validator.validate(body);
+                    if (!violations.isEmpty()) {
+                        throw new ConstraintViolationException(violations);
+                    }
+                    log.info("received reactive request from {}: {}", clientAndBody.getT1(), body.toString());
+                    return new PreparedRequest(executionPlanner.plan(body), clientAndBody.getT1());
+                });
+    }
+
+    private Flux<String> lines(Flux<DataBuffer> output) {
+        var decoder = StringDecoder.allMimeTypes();
+        decoder.setMaxInMemorySize(maxOutputBytes);
+        return decoder.decode(output, ResolvableType.forClass(String.class), null, null);
+    }
+
+    private static void copy(DataBuffer chunk, BoundedOutputBuffer buffer) {
+        var bytes = new byte[chunk.readableByteCount()];
+        chunk.read(bytes);
+        DataBufferUtils.release(chunk);
+        buffer.write(bytes, 0, bytes.length);
+    }
+
+    private BinaryRunnerStreamEvent exitEvent(int exitCode) {
+        var commandExitCode = CommandExitCode.getCommandExitCodeByValue(exitCode);
+        return BinaryRunnerStreamEvent.exit(exitCode, commandExitCode.getErrorMessage());
+    }
+
+    // the same error responses as GlobalExceptionHandler
+    private Mono<ServerResponse> error(Throwable ex) {
+        if (ex instanceof BinaryRunningException) {
+            var exitCode = CommandExitCode.getCommandExitCodeByValue(Integer.valueOf(ex.getMessage()));
+            var response = ServerResponse.status(exitCode.getHttpstatus());
+            // an overloaded service or a busy client is told when it is worth to try again
+            if (exitCode.getHttpstatus() == HttpStatus.SERVICE_UNAVAILABLE
+                    || exitCode.getHttpstatus() == HttpStatus.TOO_MANY_REQUESTS) {
+                response.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            }
+            return response.bodyValue(BinaryRunnerResponse.runningError(exitCode));
+        }
+        if (ex instanceof ConstraintViolationException violation) {
+            String[] details = violation.getConstraintViolations().stream()
+                    .map(error -> error.getPropertyPath() + ":" + error.getMessage())
+                    .toArray(String[]::new);
+            return ServerResponse.badRequest()
+                    .bodyValue(new BinaryRunnerResponse(LocalDateTime.now(), "Validation failed", details));
+        }
+        if (ex instanceof ServerWebInputException || ex instanceof DecodingException) {
+            log.error("Cannot parse request. {}", ex.getMessage());
+            return ServerResponse.badRequest().bodyValue(new BinaryRunnerResponse(LocalDateTime.now(),
+                    "not parsable request", new String[] { "please double check the json object" }));
+        }
+        log.error("exception {} has been occured", ex.getMessage(), ex);
+        return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue(new BinaryRunnerResponse(
+                LocalDateTime.now(), "Internal server error", new String[] { "please contact the admin" }));
+    }
+
+    private record PreparedRequest(ExecutionPlan plan, String client) {
+    }
+}
@@ -0,0 +1,155 @@
+package com.kambi.binaryrunner.reactive;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+
+import com.kambi.binaryrunner.model.ExecutionPlan;
+import com.kambi.binaryrunner.service.AdaptiveConcurrencyLimiter;
+import com.kambi.binaryrunner.service.BinaryRunnerMetrics;
+import com.kambi.binaryrunner.service.BinaryRunnerService;
+import com.kambi.binaryrunner.service.ClientQuotas;
+import com.kambi.binaryrunner.service.ProcessRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.CLIENT_QUOTA_EXCEEDED;
+import static com.kambi.binaryrunner.model.CommandExitCode.HOST_OVERLOADED;
+import static com.kambi.binaryrunner.model.CommandExitCode.INTERNAL_SERVER_ERROR;
+import static com.kambi.binaryrunner.model.CommandExitCode.TIMEOUT_REACHED;
+
+/*
+ * running the binary files without holding a thread while they are running.
+ * the jdk has no non-blocking api for the process pipes and a blocking read pins
+ * a thread per running binary file, so the output pipe is polled by available()
+ * and read only while the subscriber has demand, backing off up to pollInterval
+ * milliseconds while nothing is written. a slow subscriber leaves the pipe full,
+ * so the binary file waits for it (backpressure). the exit is observed by
+ * Process.onExit(). the admission is the same as the mvc path (the adaptive
+ * limiter and the running slots of the client) but nothing waits in a queue
+ */
+@Slf4j
+@Component
+public class ReactiveProcessRunner {
+    private static final int CHUNK_SIZE = 8192;
+    private static final long MIN_POLL_INTERVAL = 1;
+
+    private final ProcessRegistry processRegistry;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ClientQuotas clientQuotas;
+    private final BinaryRunnerMetrics metrics;
+    private final long pollInterval;
+
+    public ReactiveProcessRunner(ProcessRegistry processRegistry, AdaptiveConcurrencyLimiter concurrencyLimiter,
+            ClientQuotas clientQuotas, BinaryRunnerMetrics metrics,
+            @Value("${running.reactive.poll-interval}") long pollInterval) {
+        this.processRegistry = processRegistry;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.clientQuotas = clientQuotas;
+        this.metrics = metrics;
+        this.pollInterval = pollInterval;
+    }
+
+    /*
+     * the output chunks are mapped by output and the exit code by exit, which is
+     * always the last element. cancelling the subscription (e.g. by a timeout)
+     * destroys the process tree
+     */
+    public <T> Flux<T> execute(ExecutionPlan plan, String client, Function<Flux<DataBuffer>, Flux<T>> output,
+            IntFunction<T> exit) {
+        return Flux.defer(() -> {
+            if (!concurrencyLimiter.tryAcquire()) {
+                return Flux.just(exit.apply(HOST_OVERLOADED.getExitCode()));
+            }
+            if (!clientQuotas.tryAcquireSlot(client)) {
+                concurrencyLimiter.release(0, false, true);
+                return Flux.just(exit.apply(CLIENT_QUOTA_EXCEEDED.getExitCode()));
+            }
+            long startTime = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            var script = metrics.scriptOf(plan.commands());
+            long baseline = metrics.expectedRuntime(script);
+            return Mono.fromCallable(() -> start(plan, script, startNanos))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapMany(process -> output.apply(readOutput(process))
+                            .concatWith(Mono.fromFuture(process.onExit()).map(exited -> exit.apply(exited.exitValue())))
+                            .doFinally(signal -> finish(process, script, startNanos, signal)))
+                    .onErrorResume(IOException.class,
+                            ex -> Flux.just(exit.apply(BinaryRunnerService.exitCodeOf(ex))))
+                    .doFinally(signal -> {
+                        clientQuotas.releaseSlot(client);
+                        concurrencyLimiter.release(System.currentTimeMillis() - startTime, baseline,
+                                signal == SignalType.CANCEL, false);
+                    });
+        });
+    }
+
+    private Process start(ExecutionPlan plan, String script, long startNanos) throws IOException {
+        log.info("start running {}", plan.argv());
+        // the error output is not read, so it must not fill a pipe
+        var process = plan.newProcessBuilder().redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        metrics.recordSpawn(script, startNanos);
+        processRegistry.register(process);
+        process.getOutputStream().close();
+        return process;
+    }
+
+    private void finish(Process process, String script, long startNanos, SignalType signal) {
+        int exitCode = INTERNAL_SERVER_ERROR.getExitCode();
+        if (signal == SignalType.CANCEL) {
+            processRegistry.destroyTree(process);
+            exitCode = TIMEOUT_REACHED.getExitCode();
+        } else if (!process.isAlive()) {
+            exitCode = process.exitValue();
+        }
+        processRegistry.release(process);
+        metrics.recordExit(script, startNanos, exitCode);
+    }
+
+    /*
+     * every subscription of the repeated poll reads at most one chunk, so at most
+     * one chunk is read ahead of the demand. the output is finished when nothing
+     * is left in the pipe after the exit, whatever is written later by a process
+     * left behind is not waited for
+     */
+    private Flux<DataBuffer> readOutput(Process process) {
+        var input = process.getInputStream();
+        var poll = new PollState();
+        return Mono.defer(() -> {
+            try {
+                boolean exited = !process.isAlive();
+                int available = input.available();
+                if (available > 0) {
+                    poll.interval = MIN_POLL_INTERVAL;
+                    var chunk = input.readNBytes(Math.min(available, CHUNK_SIZE));
+                    return Mono.just(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+                }
+                if (exited) {
+                    poll.finished = true;
+                    return Mono.<DataBuffer>empty();
+                }
+                var interval = poll.interval;
+                poll.interval = Math.min(interval * 2, pollInterval);
+                return Mono.delay(Duration.ofMillis(interval)).then(Mono.<DataBuffer>empty());
+            } catch (IOException ex) {
+                return Mono.error(ex);
+            }
+        }).repeat(() -> !poll.finished);
+    }
+
+    // the polls of an output are sequential, one after the other
+    private static class PollState {
+        private volatile long interval = MIN_POLL_INTERVAL;
+        private volatile boolean finished;
+    }
+}
@@ -0,0 +1,48 @@
+package com.kambi.binaryrunner.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/*
+ * serving the webflux runner by its own reactor netty server next to the servlet
+ * one, so the rest of the api is not changed. the json is written by the same
+ * object mapper as the mvc endpoints
+ */
+@Slf4j
+@Configuration
+public class ReactiveServerConfig {
+
+    @Bean(destroyMethod = "disposeNow")
+    DisposableServer reactiveServer(ReactiveBinaryRunnerHandler handler, ObjectMapper objectMapper,
+            @Value("${running.reactive.port}") int port) {
+        var routes = RouterFunctions.route()
+                .POST("/reactive/v1/runner", handler::run)
+                .POST("/reactive/v1/runner/stream", handler::stream)
+                .build();
+        var strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+
+        var server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(routes, strategies)))
+                .bindNow();
+        log.info("reactive runner is listening on port {}", server.port());
+        return server;
+    }
+}
@@ -0,0 +1,93 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.dto.BinaryRunnerStreamEvent;
+
+import reactor.netty.DisposableServer;
+
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_PATH;
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_EXTENTION;
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.CORRECT_BINARY_FILE;
+import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
+import static com.kambi.binaryrunner.model.CommandExitCode.TIMEOUT_REACHED;
+
+// run by: ./mvnw -Preactive test
+@SpringBootTest(properties = "running.reactive.port=0")
+class ReactiveBinaryRunnerTest {
+    private final static String apiEndPoint = "/reactive/v1/runner";
+
+    @Autowired
+    private DisposableServer reactiveServer;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + reactiveServer.port()).build();
+    }
+
+    @Test
+    void testRunningWithTheSameContractAsMvc() {
+        var request = new BinaryRunnerRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION,
+                List.of(DEFAULT_PATH));
+
+        client.post().uri(apiEndPoint).bodyValue(request).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("the binary file execution result")
+                .jsonPath("$.details").value(details -> assertEquals(
+                        List.of(new File(DEFAULT_PATH).list()).stream().sorted().toList(), details));
+    }
+
+    @Test
+    void testMappingExitCodesToHttpStatus() {
+        client.post().uri(apiEndPoint).bodyValue(new BinaryRunnerRequest("wrong/path/ls.sh", null)).exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.details[0]").isEqualTo("execution file not found");
+
+        client.post().uri(apiEndPoint).bodyValue(new BinaryRunnerRequest("ls.exe", null)).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Validation failed");
+    }
+
+    @Test
+    void testTimeoutDestroysTheProcess() {
+        var request = new BinaryRunnerRequest(DEFAULT_PATH + "sleep" + DEFAULT_EXTENTION, List.of("10"), null,
+                300L);
+
+        client.post().uri(apiEndPoint).bodyValue(request).exchange()
+                .expectStatus().isEqualTo(408);
+    }
+
+    @Test
+    void testStreamingOutputAndExitCode() {
+        var request = new BinaryRunnerRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION,
+                List.of(DEFAULT_PATH));
+
+        var events = client.post().uri(apiEndPoint + "/stream").bodyValue(request).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(BinaryRunnerStreamEvent.class).getResponseBody().collectList().block();
+
+        assertEquals(new File(DEFAULT_PATH).list().length + 1, events.size());
+        assertEquals(SUCCESSFUL.getExitCode(), events.get(events.size() - 1).exitCode());
+
+        var slow = new BinaryRunnerRequest(DEFAULT_PATH + "sleep" + DEFAULT_EXTENTION, List.of("10"), null, 300L);
+        var timedOut = client.post().uri(apiEndPoint + "/stream").bodyValue(slow).exchange()
+                .returnResult(BinaryRunnerStreamEvent.class).getResponseBody().collectList().block();
+        assertEquals(List.of(BinaryRunnerStreamEvent.exit(TIMEOUT_REACHED.getExitCode(),
+                TIMEOUT_REACHED.getErrorMessage())), timedOut);
+    }
+}
@@ -0,0 +1,124 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.DisposableServer;
+
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_PATH;
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_EXTENTION;
+
+/*
+ * comparing the mvc and the webflux runner for many concurrent slow binary files.
+ * both of them get the same admission limits, the peak number of threads and the
+ * peak heap are sampled while the requests are running.
+ * run by: ./mvnw -Preactive,load-test test -Dtest=ReactiveLoadTest
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "running.reactive.port=0",
+        "running.process.timeout=60000",
+        "running.process.max-concurrent=1000",
+        "running.process.queue-capacity=1000",
+        "running.limiter.enabled=false",
+        "running.clients.rate=100000",
+        "running.clients.burst=100000",
+        "running.clients.max-concurrent=1000" })
+class ReactiveLoadTest {
+
+    private static final int REQUESTS = 500;
+    private static final String SLEEP_SECONDS = "0.5";
+
+    @LocalServerPort
+    private int mvcPort;
+
+    @Autowired
+    private DisposableServer reactiveServer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testCompareMemoryPerConnectionAndThroughput() throws Exception {
+        var request = new BinaryRunnerRequest(new File(DEFAULT_PATH + "sleep" + DEFAULT_EXTENTION).getAbsolutePath(),
+                List.of(SLEEP_SECONDS));
+        var body = objectMapper.writeValueAsString(request);
+
+        // warming up both of them
+        run("warm-up", "http://localhost:" + mvcPort + "/api/v1/runner", body, 20);
+        run("warm-up", "http://localhost:" + reactiveServer.port() + "/reactive/v1/runner", body, 20);
+
+        var mvc = run("mvc", "http://localhost:" + mvcPort + "/api/v1/runner", body, REQUESTS);
+        var reactive = run("webflux", "http://localhost:" + reactiveServer.port() + "/reactive/v1/runner", body,
+                REQUESTS);
+
+        log.info("{}", mvc);
+        log.info("{}", reactive);
+        assertEquals(REQUESTS, mvc.succeeded());
+        assertEquals(REQUESTS, reactive.succeeded());
+    }
+
+    private LoadResult run(String mode, String url, String body, int requests) throws Exception {
+        var threads = ManagementFactory.getThreadMXBean();
+        var memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        int baselineThreads = threads.getThreadCount();
+        long baselineHeap = memory.getHeapMemoryUsage().getUsed();
+        threads.resetPeakThreadCount();
+
+        var peakHeap = new AtomicLong(baselineHeap);
+        var sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 10, TimeUnit.MILLISECONDS);
+
+        var client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(4)).build();
+        long start = System.nanoTime();
+        try {
+            List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create(url))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), HttpResponse.BodyHandlers.discarding()));
+            }
+            int succeeded = 0;
+            for (var response : responses) {
+                succeeded += response.get(2, TimeUnit.MINUTES).statusCode() == 200 ? 1 : 0;
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // the client threads are not counted
+            int extraThreads = Math.max(0, threads.getPeakThreadCount() - baselineThreads - 4);
+            return new LoadResult(mode, succeeded, millis, requests * 1000.0 / millis,
+                    (double) extraThreads / requests, (peakHeap.get() - baselineHeap) / 1024 / requests);
+        } finally {
+            sampler.shutdownNow();
+        }
+    }
+
+    private record LoadResult(String mode, int succeeded, long millis, double requestsPerSecond,
+            double threadsPerConnection, long heapKbPerConnection) {
+    }
+}
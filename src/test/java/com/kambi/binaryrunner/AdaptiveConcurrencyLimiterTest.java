@@ -0,0 +1,104 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.service.AdaptiveConcurrencyLimiter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // the load never exceeds the maximum, only the latency adapts the limit
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(true, 4, 2, 6, 0.5, 100,
+            2.0, Double.MAX_VALUE, 60000, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+    }
+
+    @Test
+    void testShedAboveTheLimit() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1.0, meterRegistry.get("binary.runner.limiter.rejected").counter().count());
+    }
+
+    @Test
+    void testLimitGrowsByOnePerWindowOfCompletions() {
+        int admitted = 0;
+        while (limiter.tryAcquire()) {
+            admitted++;
+        }
+        assertEquals(4, admitted);
+
+        // keeping the limit used, every completion is replaced by a new execution
+        int completions = 0;
+        while (limiter.getLimit() == 4) {
+            limiter.release(10, false);
+            assertTrue(limiter.tryAcquire());
+            completions++;
+        }
+        assertEquals(5, limiter.getLimit());
+        // 1/4 + 1/4.25 + ... reaches one after about a window of 4 completions
+        assertTrue(completions >= 4 && completions <= 5, "completions: " + completions);
+    }
+
+    @Test
+    void testLimitGrowsWhenFastAndShrinksWhenSlow() {
+        growToMaximum();
+        assertEquals(6, limiter.getLimit());
+
+        // every slow or congested execution halves the limit
+        assertTrue(limiter.tryAcquire());
+        limiter.release(1000, false);
+        assertEquals(3, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(10, true);
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    void testSlowIsJudgedByTheBaselineOfTheBinaryFile() {
+        growToMaximum();
+        assertEquals(6, limiter.getLimit());
+
+        // twice the threshold but within the tolerance of a long binary file
+        assertTrue(limiter.tryAcquire());
+        limiter.release(200, 150, false, false);
+        assertEquals(6, limiter.getLimit());
+
+        // under the threshold but far slower than its usual runtime
+        assertTrue(limiter.tryAcquire());
+        limiter.release(50, 10, false, false);
+        assertEquals(3, limiter.getLimit());
+    }
+
+    private void growToMaximum() {
+        for (int i = 0; i < 100 && limiter.getLimit() < 6; i++) {
+            utilizeAndRelease(10, false);
+        }
+    }
+
+    // filling the current limit and releasing every execution by the same outcome
+    private void utilizeAndRelease(long latencyMillis, boolean congested) {
+        int admitted = 0;
+        while (limiter.tryAcquire()) {
+            admitted++;
+        }
+        for (int i = 0; i < admitted; i++) {
+            limiter.release(latencyMillis, congested);
+        }
+    }
+}
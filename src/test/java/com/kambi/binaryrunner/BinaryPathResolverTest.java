@@ -0,0 +1,96 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kambi.binaryrunner.service.BinaryPathResolver;
+
+class BinaryPathResolverTest {
+
+    @TempDir
+    private Path directory;
+
+    private BinaryPathResolver resolver;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        resolver.shutdown();
+    }
+
+    @Test
+    void testFoundPathIsServedFromTheCache() throws IOException {
+        // the temporary directory is not watched, only the ttl refreshes its results
+        resolver = new BinaryPathResolver(60_000, 60_000, 100, List.of());
+        var script = Files.createFile(directory.resolve("report.sh")).toString();
+        assertEquals(script, resolver.resolve(script));
+
+        Files.delete(Path.of(script));
+        assertEquals(script, resolver.resolve(script));
+    }
+
+    @Test
+    void testNotFoundResultExpiresAfterItsTtl() throws Exception {
+        resolver = new BinaryPathResolver(60_000, 100, 100, List.of());
+        var script = directory.resolve("report.sh").toString();
+        assertNull(resolver.resolve(script));
+
+        Files.createFile(Path.of(script));
+        assertNull(resolver.resolve(script));
+        Thread.sleep(200);
+        assertEquals(script, resolver.resolve(script));
+    }
+
+    @Test
+    void testChangeOfWatchedDirectoryInvalidatesTheResult() throws Exception {
+        resolver = new BinaryPathResolver(60_000, 60_000, 100, List.of(directory.toString()));
+        var script = Files.createFile(directory.resolve("report.sh")).toString();
+        assertEquals(script, resolver.resolve(script));
+
+        Files.delete(Path.of(script));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (resolver.resolve(script) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertNull(resolver.resolve(script));
+    }
+
+    @Test
+    void testExpiredAndThenSoonestExpiringResultsAreEvictedAtTheLimit() throws Exception {
+        resolver = new BinaryPathResolver(60_000, 50, 3, List.of());
+        assertNull(resolver.resolve(directory.resolve("missing.sh").toString()));
+        var first = resolveCreated("first.sh");
+        var second = resolveCreated("second.sh");
+        Thread.sleep(100);
+
+        // the expired not found result makes room, nothing else is evicted
+        var third = resolveCreated("third.sh");
+        // the limit is reached again, the first one expires first
+        var fourth = resolveCreated("fourth.sh");
+
+        for (var script : List.of(first, second, third, fourth)) {
+            Files.delete(Path.of(script));
+        }
+        assertEquals(second, resolver.resolve(second));
+        assertEquals(third, resolver.resolve(third));
+        assertEquals(fourth, resolver.resolve(fourth));
+        // checked last, as resolving it again evicts another one
+        assertNull(resolver.resolve(first));
+    }
+
+    // every result expires at least a millisecond after the previous one
+    private String resolveCreated(String fileName) throws Exception {
+        Thread.sleep(5);
+        var script = Files.createFile(directory.resolve(fileName)).toString();
+        assertEquals(script, resolver.resolve(script));
+        return script;
+    }
+}
@@ -1,23 +1,42 @@
 package com.kambi.binaryrunner;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.ZstdInputStream;
+import com.kambi.binaryrunner.dto.BinaryRunnerBatchRequest;
 import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.dto.MaterializedViewRequest;
+import com.kambi.binaryrunner.model.JobStatus;
+import com.kambi.binaryrunner.service.ClientQuotas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordingFile;
 
 import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_PATH;
 import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_EXTENTION;
@@ -25,17 +44,31 @@ import static com.kambi.binaryrunner.BinaryRunnerServiceTest.BINARY_FILES_WITH_E
 import static com.kambi.binaryrunner.BinaryRunnerServiceTest.CORRECT_BINARY_FILE;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
+import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
+import static com.kambi.binaryrunner.model.CommandExitCode.DEADLINE_UNREACHABLE;
 
-@SpringBootTest
+@SpringBootTest(properties = "running.journal.directory=target/journal")
 @AutoConfigureMockMvc
 public class BinaryRunnerIntegrationTest {
 
     private final static List<String> args = new ArrayList<>();
     private final static String apiEndPint = "/api/v1/runner";
+    private final static String jobEndPoint = "/api/v1/jobs";
+    private final static String viewEndPoint = "/api/v1/views";
+    private final static String recordingEndPoint = "/actuator/flightrecording";
+    private final static String journalEndPoint = "/actuator/journal";
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ClientQuotas clientQuotas;
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
@@ -57,6 +90,341 @@ public class BinaryRunnerIntegrationTest {
                 .andExpect(jsonPath("$.details").isArray());
     }
 
+    @Test
+    public void testNegotiatingBinaryEncodings() throws Exception {
+        var request = new BinaryRunnerRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION, args);
+        var jsonContent = objectMapper.writeValueAsString(request);
+        var encodings = List.of(new ObjectMapper(new SmileFactory()), new ObjectMapper(new CBORFactory()));
+
+        for (var mapper : encodings) {
+            var mediaType = mapper.getFactory() instanceof SmileFactory ? "application/x-jackson-smile"
+                    : "application/cbor";
+            var body = mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                    .content(jsonContent)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(mediaType))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(content().contentType(mediaType))
+                    .andReturn().getResponse().getContentAsByteArray();
+            var response = mapper.readTree(body);
+            assertTrue(response.get("details").isArray());
+            assertTrue(response.get("details").size() > 0);
+        }
+    }
+
+    @Test
+    public void testRunningBinaryRaw() throws Exception {
+        var request = new BinaryRunnerRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION, args);
+        var jsonContent = objectMapper.writeValueAsString(request);
+        var lines = objectMapper.readTree(mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                .content(jsonContent)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString()).get("details");
+
+        var raw = mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                .content(jsonContent)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andReturn().getResponse().getContentAsString();
+        // the raw output has the same lines, not split
+        assertEquals(lines.size(), raw.split("\n").length);
+        assertEquals(lines.get(0).asText(), raw.substring(0, raw.indexOf('\n')));
+    }
+
+    @Test
+    public void testCompressingByZstd() throws Exception {
+        var bigRequest = new BinaryRunnerRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION,
+                List.of("-lR", "src"));
+        var compressed = mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                .content(objectMapper.writeValueAsString(bigRequest))
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, zstd"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_ENCODING, "zstd"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (var input = new ZstdInputStream(new ByteArrayInputStream(compressed))) {
+            assertTrue(objectMapper.readTree(input).get("details").size() > 0);
+        }
+
+        // a response smaller than the minimum response size is sent as it is
+        var smallRequest = new BinaryRunnerRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION,
+                List.of("-d", "src"));
+        mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                .content(objectMapper.writeValueAsString(smallRequest))
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT_ENCODING, "zstd"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.details[0]").value("src"));
+    }
+
+    @Test
+    public void testStreamingBinaryOutput() throws Exception {
+        var absolutePath = DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION;
+        var request = new BinaryRunnerRequest(absolutePath, args);
+        var jsonContent = objectMapper.writeValueAsString(request);
+
+        var result = mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint + "/stream")
+                .content(jsonContent)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(endsWith("{\"exitCode\":0,\"message\":\"" + SUCCESSFUL.getErrorMessage() + "\"}\n")));
+    }
+
+    @Test
+    public void testFilteringStreamedOutput() throws Exception {
+        var count = DEFAULT_PATH + "count" + DEFAULT_EXTENTION;
+        var request = new BinaryRunnerRequest(count, List.of("1000000000000"), null, null, "5$", 2, null, null, null);
+
+        var result = mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint + "/stream")
+                .content(objectMapper.writeValueAsString(request))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(content().string(startsWith("{\"line\":\"5\"}\n{\"line\":\"15\"}\n{\"exitCode\":0")));
+
+        for (var invalid : List.of(
+                new BinaryRunnerRequest(count, List.of("10"), null, null, "[", null, null, null, null),
+                new BinaryRunnerRequest(count, List.of("10"), null, null, null, 1, 1, null, null))) {
+            mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                    .content(objectMapper.writeValueAsString(invalid))
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        }
+    }
+
+    @Test
+    public void testStreamingRequestBodyToStandardInput() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint + "/input")
+                .param("binaryFile", DEFAULT_PATH + "filter" + DEFAULT_EXTENTION)
+                .param("arguments", "needle")
+                .content("hay\nneedle\nhay\n")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$.details[0]").value("needle"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint + "/input")
+                .param("binaryFile", DEFAULT_PATH + "filter")
+                .content("needle")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Validation failed"));
+    }
+
+    @Test
+    public void testRunningBatchInOriginalOrder() throws Exception {
+        var correct = new BinaryRunnerRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION, args);
+        var wrongPath = new BinaryRunnerRequest("wrong/path/ls.sh", args);
+        var batch = new BinaryRunnerBatchRequest(List.of(correct, wrongPath, correct), 2, true);
+        var jsonContent = objectMapper.writeValueAsString(batch);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint + "/batch")
+                .content(jsonContent)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value(200))
+                .andExpect(jsonPath("$.results[0].response.details").isArray())
+                .andExpect(jsonPath("$.results[1].status").value(404))
+                .andExpect(jsonPath("$.results[2].status").value(424));
+    }
+
+    @Test
+    public void testRunningBinaryAsJob() throws Exception {
+        var absolutePath = DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION;
+        var request = new BinaryRunnerRequest(absolutePath, args);
+        var jsonContent = objectMapper.writeValueAsString(request);
+
+        var submitted = mockMvc.perform(MockMvcRequestBuilders.post(jobEndPoint)
+                .content(jsonContent)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(jsonPath("$.id").exists())
+                .andReturn();
+        var id = objectMapper.readTree(submitted.getResponse().getContentAsString()).get("id").asText();
+
+        String status;
+        do {
+            Thread.sleep(50);
+            var polled = mockMvc.perform(MockMvcRequestBuilders.get(jobEndPoint + "/" + id))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andReturn();
+            status = objectMapper.readTree(polled.getResponse().getContentAsString()).get("status").asText();
+        } while (!JobStatus.valueOf(status).isFinished());
+
+        assertEquals(JobStatus.SUCCEEDED.name(), status);
+        mockMvc.perform(MockMvcRequestBuilders.get(jobEndPoint + "/" + id + "/output"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$.finished").value(true))
+                .andExpect(jsonPath("$.lines").isArray());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(jobEndPoint + "/unknown"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void testServingViewFromMemory() throws Exception {
+        var request = new MaterializedViewRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION,
+                List.of("-l"), 60_000L);
+        var jsonContent = objectMapper.writeValueAsString(request);
+        var refreshes = meterRegistry.get("binary.runner.views.refreshes").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+
+        // the refreshes are run by the service, not by the registering client which has no free slot
+        for (int i = 0; i < clientQuotas.getMaxConcurrent(); i++) {
+            clientQuotas.tryAcquireSlot("dashboard");
+        }
+        String id;
+        try {
+            var registered = mockMvc.perform(MockMvcRequestBuilders.post(viewEndPoint)
+                    .header("X-Client-Id", "dashboard")
+                    .content(jsonContent)
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andReturn();
+            id = objectMapper.readTree(registered.getResponse().getContentAsString()).get("id").asText();
+            mockMvc.perform(MockMvcRequestBuilders.get(viewEndPoint + "/" + id))
+                    .andExpect(MockMvcResultMatchers.status().isOk());
+        } finally {
+            for (int i = 0; i < clientQuotas.getMaxConcurrent(); i++) {
+                clientQuotas.releaseSlot("dashboard");
+            }
+        }
+        // the same binary file and arguments are one view
+        mockMvc.perform(MockMvcRequestBuilders.post(viewEndPoint)
+                .content(jsonContent)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.id").value(id));
+
+        for (int i = 0; i < 20; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.get(viewEndPoint + "/" + id))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.header().exists("Age"))
+                    .andExpect(jsonPath("$.details").isArray());
+        }
+        assertEquals(refreshes + 1, meterRegistry.get("binary.runner.views.refreshes").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum());
+
+        // the view is shared, only the client which has registered it removes it
+        mockMvc.perform(MockMvcRequestBuilders.delete(viewEndPoint + "/" + id))
+                .andExpect(MockMvcResultMatchers.status().isForbidden());
+        mockMvc.perform(MockMvcRequestBuilders.delete(viewEndPoint + "/" + id)
+                .header("X-Client-Id", "dashboard"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get(viewEndPoint + "/" + id))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void testRejectingWhenTimeoutIsShorterThanTheUsualRuntime() throws Exception {
+        var sleepFile = DEFAULT_PATH + "sleep" + DEFAULT_EXTENTION;
+        var usual = new BinaryRunnerRequest(sleepFile, List.of("0.5"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                .content(objectMapper.writeValueAsString(usual))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        var hurried = BinaryRunnerRequest.builder().binaryFile(sleepFile).arguments(List.of("0.5")).timeout(100L)
+                .build();
+        mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                .content(objectMapper.writeValueAsString(hurried))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isRequestTimeout())
+                .andExpect(jsonPath("$.details[0]").value(DEADLINE_UNREACHABLE.getErrorMessage()));
+    }
+
+    @Test
+    public void testRejectingUnknownApiKey() throws Exception {
+        var request = new BinaryRunnerRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION, args);
+
+        mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                .header("X-Api-Key", "unknown")
+                .content(objectMapper.writeValueAsString(request))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized());
+    }
+
+    @Test
+    public void testRecordingTheExecutionPath() throws Exception {
+        var started = mockMvc.perform(MockMvcRequestBuilders.post(recordingEndPoint)
+                .content("{\"duration\":60000}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andReturn();
+        var id = objectMapper.readTree(started.getResponse().getContentAsString()).get("id").asLong();
+
+        var request = new BinaryRunnerRequest(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION, args);
+        mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                .content(objectMapper.writeValueAsString(request))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.delete(recordingEndPoint))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$.state").value("CLOSED"));
+        var recording = mockMvc.perform(MockMvcRequestBuilders.get(recordingEndPoint + "/" + id))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        var file = Files.createTempFile("binary-runner-test-", ".jfr");
+        try {
+            Files.write(file, recording);
+            var events = RecordingFile.readAllEvents(file).stream()
+                    .map(event -> event.getEventType().getName())
+                    .filter(name -> name.startsWith("com.kambi.binaryrunner."))
+                    .collect(Collectors.toSet());
+            assertEquals(Set.of("com.kambi.binaryrunner.RequestReceived", "com.kambi.binaryrunner.PathResolved",
+                    "com.kambi.binaryrunner.ProcessSpawned", "com.kambi.binaryrunner.FirstOutput",
+                    "com.kambi.binaryrunner.ProcessExited", "com.kambi.binaryrunner.ResponseSerialized"), events);
+        } finally {
+            Files.delete(file);
+        }
+        mockMvc.perform(MockMvcRequestBuilders.get(recordingEndPoint + "/" + (id + 1)))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void testQueryingTheExecutionJournal() throws Exception {
+        var from = Instant.now().toString();
+        var request = new BinaryRunnerRequest(DEFAULT_PATH + "count" + DEFAULT_EXTENTION, List.of("3"));
+        mockMvc.perform(MockMvcRequestBuilders.post(apiEndPint)
+                .content(objectMapper.writeValueAsString(request))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        // the journal is written in the background
+        JsonNode journal = null;
+        for (int i = 0; i < 50; i++) {
+            journal = objectMapper.readTree(mockMvc.perform(MockMvcRequestBuilders.get(journalEndPoint)
+                    .param("from", from)
+                    .param("script", "count" + DEFAULT_EXTENTION))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            if (journal.get("count").asInt() > 0) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        var entry = journal.get("entries").get(journal.get("count").asInt() - 1);
+        assertEquals("count" + DEFAULT_EXTENTION, entry.get("script").asText());
+        assertEquals(SUCCESSFUL.name(), entry.get("status").asText());
+        assertEquals(6, entry.get("outputBytes").asLong());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(journalEndPoint).param("from", "yesterday"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     @Test
     public void testExpectedToReturn4XX() throws Exception {
         var executorService = Executors.newFixedThreadPool(BINARY_FILES_WITH_EEROR.length);
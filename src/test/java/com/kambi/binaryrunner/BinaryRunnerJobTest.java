@@ -0,0 +1,105 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.model.BinaryRunnerJob;
+import com.kambi.binaryrunner.model.JobStatus;
+import com.kambi.binaryrunner.model.TruncationMode;
+import com.kambi.binaryrunner.service.ProcessExecutionScheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BinaryRunnerJobTest {
+
+    @Test
+    void testOutputUnderTheLimitIsKept() {
+        var job = jobWithLines(100, TruncationMode.HEAD, 5);
+
+        var page = job.getOutput(1, 10);
+        assertEquals(List.of("line1", "line2", "line3", "line4"), page.lines());
+        assertEquals(5, page.nextOffset());
+        assertFalse(job.isOutputTruncated());
+    }
+
+    @Test
+    void testHeadKeepsTheFirstLines() {
+        // every line is 6 bytes with its line break
+        var job = jobWithLines(18, TruncationMode.HEAD, 10);
+
+        assertEquals(10, job.getOutputSize());
+        assertTrue(job.isOutputTruncated());
+        var page = job.getOutput(0, 100);
+        assertEquals(List.of("line0", "line1", "line2"), page.lines());
+        assertEquals(10, page.nextOffset());
+    }
+
+    @Test
+    void testTailKeepsTheLastLinesAtTheirPositions() {
+        var job = jobWithLines(18, TruncationMode.TAIL, 10);
+
+        var page = job.getOutput(0, 100);
+        assertEquals(List.of("line7", "line8", "line9"), page.lines());
+        assertEquals(10, page.nextOffset());
+        assertEquals(List.of("line9"), job.getOutput(9, 100).lines());
+    }
+
+    @Test
+    void testHeadTailSkipsTheDroppedLinesWhilePaging() {
+        var job = jobWithLines(24, TruncationMode.HEAD_TAIL, 10);
+
+        var first = job.getOutput(0, 3);
+        assertEquals(List.of("line0", "line1", "line8"), first.lines());
+        var second = job.getOutput(first.nextOffset(), 3);
+        assertEquals(List.of("line9"), second.lines());
+        assertEquals(10, second.nextOffset());
+        assertTrue(job.getOutput(second.nextOffset(), 3).lines().isEmpty());
+    }
+
+    @Test
+    void testStoppedQueuedJobIsNeverStarted() throws Exception {
+        var scheduler = new ProcessExecutionScheduler(1, 1, Executors.defaultThreadFactory(),
+                new SimpleMeterRegistry());
+        var release = new CountDownLatch(1);
+        var started = new AtomicBoolean();
+        var done = new AtomicInteger();
+        try {
+            scheduler.submit(() -> release.await(5, TimeUnit.SECONDS));
+            var job = jobWithLines(100, TruncationMode.HEAD, 0);
+            job.setExecution(scheduler.submit(() -> started.getAndSet(true), Long.MAX_VALUE, "client", 1,
+                    done::incrementAndGet));
+
+            assertTrue(job.stop(JobStatus.CANCELLED, null));
+            // the slot and the permit are given back right away, not when the task is polled
+            assertEquals(1, done.get());
+            // its waiting slot is free too, while the only running slot is still taken
+            var next = scheduler.submit(() -> true);
+            release.countDown();
+            next.get(5, TimeUnit.SECONDS);
+
+            assertFalse(started.get());
+            assertEquals(1, done.get());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static BinaryRunnerJob jobWithLines(int maxOutputBytes, TruncationMode mode, int lines) {
+        var job = new BinaryRunnerJob("job", "ls.sh", process -> {
+        }, maxOutputBytes, mode);
+        for (int i = 0; i < lines; i++) {
+            job.appendOutput("line" + i);
+        }
+        return job;
+    }
+}
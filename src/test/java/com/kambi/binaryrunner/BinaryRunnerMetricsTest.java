@@ -0,0 +1,94 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.model.ResourceUsage;
+import com.kambi.binaryrunner.service.BinaryRunnerMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
+import static com.kambi.binaryrunner.model.CommandExitCode.TIMEOUT_REACHED;
+
+class BinaryRunnerMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testMetersAreTaggedByScriptAndExitCode() throws Exception {
+        var metrics = new BinaryRunnerMetrics(meterRegistry, 10, 60_000);
+        var script = metrics.scriptOf(List.of("sudo", "sh", "/scripts/report.sh", "-l"));
+        assertEquals("report.sh", script);
+
+        long startNanos = System.nanoTime();
+        metrics.recordSpawn(script, startNanos);
+        try (var output = metrics.meter(new ByteArrayOutputStream(), script, startNanos)) {
+            output.write("output".getBytes());
+        }
+        metrics.recordExit(script, startNanos, SUCCESSFUL.getExitCode());
+        metrics.recordSpawn(script, startNanos);
+        metrics.recordExit(script, startNanos, TIMEOUT_REACHED.getExitCode());
+        metrics.recordUsage(script, new ResourceUsage(40, 30L, 10L, 2048L, null, null));
+
+        assertEquals(2, meterRegistry.get("binary.runner.process.spawn").tag("script", script).timer().count());
+        assertEquals(1, meterRegistry.get("binary.runner.process.first.output").tag("script", script).timer().count());
+        assertEquals(1, meterRegistry.get("binary.runner.process.runtime").tag("script", script)
+                .tag("exitCode", SUCCESSFUL.name()).timer().count());
+        assertEquals(1, meterRegistry.get("binary.runner.process.runtime").tag("script", script)
+                .tag("exitCode", TIMEOUT_REACHED.name()).timer().count());
+        assertEquals(6.0, meterRegistry.get("binary.runner.process.output.bytes").tag("script", script).summary()
+                .totalAmount());
+        assertEquals(2048.0, meterRegistry.get("binary.runner.process.peak.rss").tag("script", script).summary()
+                .totalAmount());
+        // the io of the process tree is not known, so it is not recorded
+        assertTrue(meterRegistry.find("binary.runner.process.read.bytes").meters().isEmpty());
+        assertEquals(0.0, meterRegistry.get("binary.runner.process.inflight").gauge().value());
+    }
+
+    @Test
+    void testScriptsAboveTheMaximumAreTaggedAsOther() {
+        var metrics = new BinaryRunnerMetrics(meterRegistry, 2, 60_000);
+        assertEquals("first.sh", metrics.scriptTag("/scripts/first.sh"));
+        assertEquals("second.sh", metrics.scriptTag("/other/second.sh"));
+        assertEquals("other", metrics.scriptTag("/scripts/third.sh"));
+        // the known ones are still tagged by their names
+        assertEquals("first.sh", metrics.scriptTag("/elsewhere/first.sh"));
+        assertEquals("other", metrics.scriptOf(List.of("ls", "-l")));
+
+        metrics.recordExit(metrics.scriptTag("/scripts/third.sh"), System.nanoTime(), SUCCESSFUL.getExitCode());
+        assertEquals(1, meterRegistry.get("binary.runner.process.runtime").tag("script", "other").timer().count());
+        // random files never get an estimation of their runtime
+        assertEquals(0, metrics.expectedRuntime("other"));
+    }
+
+    @Test
+    void testExpectedRuntimeConvergesAndExpires() throws Exception {
+        var metrics = new BinaryRunnerMetrics(meterRegistry, 10, 200);
+        assertEquals(0, metrics.expectedRuntime("report.sh"));
+
+        recordRuntime(metrics, "report.sh", 1000);
+        assertEquals(1000, metrics.expectedRuntime("report.sh"), 10);
+        for (int i = 0; i < 20; i++) {
+            recordRuntime(metrics, "report.sh", 100);
+        }
+        // 100 + 900 * 0.8^20 is about 110
+        assertEquals(110, metrics.expectedRuntime("report.sh"), 10);
+
+        Thread.sleep(300);
+        assertEquals(0, metrics.expectedRuntime("report.sh"));
+    }
+
+    // the process has been started the given milliseconds ago
+    private static void recordRuntime(BinaryRunnerMetrics metrics, String script, long millis) {
+        long startNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis);
+        metrics.recordSpawn(script, startNanos);
+        metrics.recordExit(script, startNanos, SUCCESSFUL.getExitCode());
+    }
+}
@@ -0,0 +1,92 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.model.BinaryRunnerResult;
+import com.kambi.binaryrunner.model.CapturedOutput;
+import com.kambi.binaryrunner.service.BinaryRunnerResultCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_PATH;
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_EXTENTION;
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.CORRECT_BINARY_FILE;
+
+class BinaryRunnerResultCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BinaryRunnerResultCache cache = new BinaryRunnerResultCache(true,
+            Set.of(CORRECT_BINARY_FILE + DEFAULT_EXTENTION), 60_000, 10, meterRegistry);
+    private final List<String> commands = List.of(
+            new File(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION).getAbsolutePath(), "-l");
+
+    @Test
+    void testCacheableByAllowedScriptOrRequest() {
+        assertTrue(cache.isCacheable(commands.get(0), null));
+        assertFalse(cache.isCacheable("/other/path/ls.sh", null));
+        assertTrue(cache.isCacheable("/other/path/ls.sh", true));
+    }
+
+    @Test
+    void testServeRepeatedAndConcurrentRequestsByOneExecution() throws Exception {
+        var executions = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var first = CompletableFuture.supplyAsync(() -> cache.get(false, commands, () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return new BinaryRunnerResult(0, CapturedOutput.of(List.of("output")));
+        }));
+        await(started);
+        var second = CompletableFuture.supplyAsync(() -> cache.get(false, commands, () -> {
+            executions.incrementAndGet();
+            return new BinaryRunnerResult(0, CapturedOutput.of(List.of("output")));
+        }));
+        release.countDown();
+
+        assertArrayEquals(first.get(5, TimeUnit.SECONDS).output().lines(), second.get(5, TimeUnit.SECONDS).output().lines());
+        assertArrayEquals(new String[] { "output" }, cache.get(false, commands, () -> {
+            throw new IllegalStateException("should be served from the cache");
+        }).output().lines());
+        assertEquals(1, executions.get());
+        // the second request either joins the running execution or is served from the cache
+        assertEquals(1.0, meterRegistry.get("binary.runner.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(2.0, meterRegistry.get("binary.runner.cache.requests").tag("result", "hit").counter().count()
+                + meterRegistry.get("binary.runner.cache.requests").tag("result", "shared").counter().count());
+    }
+
+    @Test
+    void testOnlySuccessfulResultsAreStoredByPut() {
+        assertNull(cache.getIfPresent(false, commands));
+        cache.put(false, commands, new BinaryRunnerResult(2, CapturedOutput.of(List.of("error"))));
+        assertNull(cache.getIfPresent(false, commands));
+
+        cache.put(false, commands, new BinaryRunnerResult(0, CapturedOutput.of(List.of("output"))));
+        assertArrayEquals(new String[] { "output" }, cache.getIfPresent(false, commands).output().lines());
+        assertNull(cache.getIfPresent(true, commands));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
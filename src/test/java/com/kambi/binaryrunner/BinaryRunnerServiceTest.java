@@ -1,13 +1,26 @@
 package com.kambi.binaryrunner;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -16,21 +29,29 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import com.kambi.binaryrunner.dto.BinaryRunnerPipelineRequest;
 import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
 import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.service.AdaptiveConcurrencyLimiter;
 import com.kambi.binaryrunner.service.BinaryRunnerService;
+import com.kambi.binaryrunner.service.ClientQuotas;
+import com.kambi.binaryrunner.service.OutputFilter;
 
 import static com.kambi.binaryrunner.model.CommandExitCode.INVALID_ARG;
 import static com.kambi.binaryrunner.model.CommandExitCode.FILE_NOT_FOUND;
 import static com.kambi.binaryrunner.model.CommandExitCode.TIMEOUT_REACHED;
 import static com.kambi.binaryrunner.model.CommandExitCode.COMMAND_NOT_FOUND;
 import static com.kambi.binaryrunner.model.CommandExitCode.FILE_PERMISSION_DENIED;
+import static com.kambi.binaryrunner.model.CommandExitCode.CPU_LIMIT_EXCEEDED;
 
-@SpringBootTest(properties = "running.process.timeout=5000")
+@SpringBootTest(properties = { "running.process.timeout=5000", "running.limits.cpu-time=busy.sh:1",
+        "running.journal.directory=target/journal-service" })
 class BinaryRunnerServiceTest {
 
     @Autowired
     private BinaryRunnerService binaryRunnerService;
+    @Autowired
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
     public final static String DEFAULT_PATH;
     public final static String DEFAULT_EXTENTION;
     public final static String CORRECT_BINARY_FILE = "correct";
@@ -105,4 +126,219 @@ class BinaryRunnerServiceTest {
             binaryRunnerService.binaryRunner(request);
         });
     }
+
+    @Test
+    void testRunningPipelineThroughOsPipes() {
+        var pipeline = new BinaryRunnerPipelineRequest(List.of(
+                new BinaryRunnerRequest(new File(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION).getAbsolutePath(),
+                        List.of(DEFAULT_PATH)),
+                new BinaryRunnerRequest(new File(DEFAULT_PATH + "filter" + DEFAULT_EXTENTION).getAbsolutePath(),
+                        List.of("sleep"))), null);
+
+        var result = binaryRunnerService.binaryRunnerPipeline(pipeline, ClientQuotas.ANONYMOUS);
+
+        assertEquals(List.of("sleep" + DEFAULT_EXTENTION), List.of(result.details()));
+    }
+
+    @Test
+    void testPipelineFailsByTheFailedStage() {
+        var pipeline = new BinaryRunnerPipelineRequest(List.of(
+                new BinaryRunnerRequest(new File(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION).getAbsolutePath(),
+                        List.of(DEFAULT_PATH)),
+                new BinaryRunnerRequest(new File(DEFAULT_PATH + BINARY_FILES_WITH_EEROR[3] + DEFAULT_EXTENTION).getAbsolutePath(),
+                        null)), null);
+
+        var exception = assertThrows(BinaryRunningException.class, () -> {
+            binaryRunnerService.binaryRunnerPipeline(pipeline, ClientQuotas.ANONYMOUS);
+        });
+        assertEquals(String.valueOf(COMMAND_NOT_FOUND.getExitCode()), exception.getMessage());
+    }
+
+    @Test
+    void testTimeoutStopsTheWholePipeline() {
+        var pipeline = new BinaryRunnerPipelineRequest(List.of(
+                new BinaryRunnerRequest(new File(DEFAULT_PATH + "sleep" + DEFAULT_EXTENTION).getAbsolutePath(),
+                        List.of("10")),
+                new BinaryRunnerRequest(new File(DEFAULT_PATH + "filter" + DEFAULT_EXTENTION).getAbsolutePath(),
+                        List.of("x"))), 300L);
+
+        long start = System.currentTimeMillis();
+        var exception = assertThrows(BinaryRunningException.class, () -> {
+            binaryRunnerService.binaryRunnerPipeline(pipeline, ClientQuotas.ANONYMOUS);
+        });
+        assertEquals(String.valueOf(TIMEOUT_REACHED.getExitCode()), exception.getMessage());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    void testStreamingLargeInputToStandardInput() {
+        var request = new BinaryRunnerRequest(new File(DEFAULT_PATH + "filter" + DEFAULT_EXTENTION).getAbsolutePath(),
+                List.of("needle"));
+        // 64 MB of lines which are never held in memory, only the last one matches
+        var input = new SequenceInputStream(generatedInput(64 * 1024 * 1024),
+                new ByteArrayInputStream("needle\n".getBytes()));
+
+        var result = binaryRunnerService.binaryRunner(request, input, ClientQuotas.ANONYMOUS);
+
+        assertEquals(List.of("needle"), List.of(result.details()));
+    }
+
+    @Test
+    void testTimeoutWhenInputIsNotRead() {
+        var request = new BinaryRunnerRequest(new File(DEFAULT_PATH + "sleep" + DEFAULT_EXTENTION).getAbsolutePath(),
+                List.of("10"), null, 500L);
+
+        long start = System.currentTimeMillis();
+        var exception = assertThrows(BinaryRunningException.class, () -> {
+            binaryRunnerService.binaryRunner(request, generatedInput(Long.MAX_VALUE), ClientQuotas.ANONYMOUS);
+        });
+        assertEquals(String.valueOf(TIMEOUT_REACHED.getExitCode()), exception.getMessage());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    void testResourceUsageOfTheBinaryFile() {
+        var request = new BinaryRunnerRequest(new File(DEFAULT_PATH + "busy" + DEFAULT_EXTENTION).getAbsolutePath(),
+                List.of("200000"));
+
+        var result = binaryRunnerService.binaryRunner(request);
+
+        assertNotNull(result.usage());
+        assertTrue(result.usage().cpuTime() > 0);
+    }
+
+    @Test
+    void testCpuTimeLimitStopsTheBinaryFile() {
+        var request = new BinaryRunnerRequest(new File(DEFAULT_PATH + "busy" + DEFAULT_EXTENTION).getAbsolutePath(),
+                List.of("100000000"));
+
+        var exception = assertThrows(BinaryRunningException.class, () -> {
+            binaryRunnerService.binaryRunner(request);
+        });
+        assertEquals(String.valueOf(CPU_LIMIT_EXCEEDED.getExitCode()), exception.getMessage());
+    }
+
+    @Test
+    void testFilteringTheOutput() {
+        var count = new File(DEFAULT_PATH + "count" + DEFAULT_EXTENTION).getAbsolutePath();
+
+        var matching = binaryRunnerService.binaryRunner(
+                new BinaryRunnerRequest(count, List.of("100"), null, null, "^1", null, null, 20, null));
+        assertEquals(List.of("1", "10", "11", "12", "13", "14", "15", "16", "17", "18", "19"),
+                List.of(matching.details()));
+
+        var counted = binaryRunnerService.binaryRunner(
+                new BinaryRunnerRequest(count, List.of("100"), null, null, "0$", null, null, null, true));
+        assertEquals(List.of("10"), List.of(counted.details()));
+
+        var last = binaryRunnerService.binaryRunner(
+                new BinaryRunnerRequest(count, List.of("100"), null, null, null, null, 2, null, null));
+        assertEquals(List.of("99", "100"), List.of(last.details()));
+    }
+
+    @Test
+    void testHeadStopsTheBinaryFile() {
+        var request = new BinaryRunnerRequest(new File(DEFAULT_PATH + "count" + DEFAULT_EXTENTION).getAbsolutePath(),
+                List.of("1000000000000"), null, null, null, 3, null, null, null);
+
+        long start = System.currentTimeMillis();
+        var result = binaryRunnerService.binaryRunner(request);
+
+        assertEquals(List.of("1", "2", "3"), List.of(result.details()));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    void testGoneClientStopsTheStreamedBinaryFile() {
+        var request = new BinaryRunnerRequest(new File(DEFAULT_PATH + "count" + DEFAULT_EXTENTION).getAbsolutePath(),
+                List.of("1000000000000"));
+        var plan = binaryRunnerService.prepareExecution(request);
+        int inflight = concurrencyLimiter.getInflight();
+        var admission = binaryRunnerService.admitExecution();
+
+        long start = System.currentTimeMillis();
+        binaryRunnerService.streamBinary(plan, OutputFilter.NONE, ClientQuotas.ANONYMOUS, admission,
+                new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("Broken pipe");
+                    }
+                });
+
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(inflight, concurrencyLimiter.getInflight());
+    }
+
+    @Test
+    void testReleasedAdmissionIsNotStreamed() {
+        var request = new BinaryRunnerRequest(new File(DEFAULT_PATH + "count" + DEFAULT_EXTENTION).getAbsolutePath(),
+                List.of("3"));
+        var plan = binaryRunnerService.prepareExecution(request);
+        int inflight = concurrencyLimiter.getInflight();
+        var admission = binaryRunnerService.admitExecution();
+
+        // the async request has been finished before its body is run
+        admission.release();
+        admission.release();
+        var output = new ByteArrayOutputStream();
+        binaryRunnerService.streamBinary(plan, OutputFilter.NONE, ClientQuotas.ANONYMOUS, admission, output);
+
+        assertEquals(0, output.size());
+        assertEquals(inflight, concurrencyLimiter.getInflight());
+    }
+
+    @Test
+    void testHotPlansSurviveABurstOfOneOffRequests() throws Exception {
+        var script = new File(DEFAULT_PATH + CORRECT_BINARY_FILE + DEFAULT_EXTENTION).getAbsolutePath();
+        List<BinaryRunnerRequest> hotRequests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            hotRequests.add(new BinaryRunnerRequest(script, List.of("-l", "hot" + i)));
+        }
+        var hotPlans = hotRequests.stream().map(binaryRunnerService::prepareExecution).toList();
+
+        // twice as many one-off requests as the planner keeps, while the hot ones are still requested
+        int threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 2500; i++) {
+                        var argument = "once" + thread + "-" + i;
+                        var plan = binaryRunnerService.prepareExecution(new BinaryRunnerRequest(script,
+                                List.of("-l", argument)));
+                        assertEquals(List.of(plan.path(), "-l", argument), plan.commands());
+                        var hot = hotRequests.get(i % hotRequests.size());
+                        assertEquals(hot.getArguments(),
+                                binaryRunnerService.prepareExecution(hot).commands().subList(1, 3));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < hotRequests.size(); i++) {
+            assertSame(hotPlans.get(i), binaryRunnerService.prepareExecution(hotRequests.get(i)));
+        }
+    }
+
+    private static InputStream generatedInput(long size) {
+        return new InputStream() {
+            private long position;
+
+            @Override
+            public int read() {
+                return position < size ? ((position++ % 64) == 63 ? '\n' : 'x') : -1;
+            }
+        };
+    }
 }
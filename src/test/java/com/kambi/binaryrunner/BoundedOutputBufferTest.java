@@ -0,0 +1,51 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.kambi.binaryrunner.model.TruncationMode;
+import com.kambi.binaryrunner.service.BoundedOutputBuffer;
+
+class BoundedOutputBufferTest {
+
+    /*
+     * param one: truncation mode
+     * param two: kept output after writing "line1\nline2\nline3\n" in two parts
+     * into a buffer of 8 bytes
+     */
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "HEAD|line1\\nli",
+            "TAIL|2\\nline3\\n",
+            "HEAD_TAIL|line\\n...[truncated]...\\nne3\\n" })
+    void testKeepConfiguredPartOfOutput(TruncationMode mode, String expected) {
+        var buffer = new BoundedOutputBuffer(8, mode);
+        var output = "line1\nline2\nline3\n".getBytes(StandardCharsets.US_ASCII);
+        buffer.write(output, 0, 7);
+        buffer.write(output, 7, output.length - 7);
+
+        var captured = buffer.toCapturedOutput();
+        assertTrue(captured.truncated());
+        assertEquals(output.length, captured.totalBytes());
+        assertEquals(expected.replace("\\n", "\n"), new String(captured.data(), StandardCharsets.US_ASCII));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "HEAD", "TAIL", "HEAD_TAIL" })
+    void testKeepWholeOutputWhenItFits(TruncationMode mode) {
+        var buffer = new BoundedOutputBuffer(64, mode);
+        var output = "line1\r\nline2\nline3".getBytes(StandardCharsets.US_ASCII);
+        buffer.write(output, 0, output.length);
+
+        var captured = buffer.toCapturedOutput();
+        assertFalse(captured.truncated());
+        assertArrayEquals(new String[] { "line1", "line2", "line3" }, captured.lines());
+    }
+}
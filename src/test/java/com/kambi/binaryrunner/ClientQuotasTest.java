@@ -0,0 +1,56 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.service.ClientQuotas;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ClientQuotasTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // one request per minute after a burst of three, two running binary files
+    private final ClientQuotas quotas = new ClientQuotas("secret:team-a", "team-a:3", 1, 1.0 / 60, 3, 2, 2,
+            meterRegistry);
+
+    @Test
+    void testRateIsLimitedAfterTheBurst() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(quotas.tryAcquireRate("team-a"));
+        }
+
+        assertFalse(quotas.tryAcquireRate("team-a"));
+        assertTrue(quotas.tryAcquireRate("team-b"));
+        assertEquals(1.0, meterRegistry.get("binary.runner.client.requests")
+                .tag("client", "team-a").tag("result", "rate_limited").counter().count());
+    }
+
+    @Test
+    void testRunningSlotsAreLimitedPerClient() {
+        assertTrue(quotas.tryAcquireSlot("team-a"));
+        assertTrue(quotas.tryAcquireSlot("team-a"));
+        assertFalse(quotas.tryAcquireSlot("team-a"));
+
+        quotas.releaseSlot("team-a");
+        assertTrue(quotas.tryAcquireSlot("team-a"));
+        assertEquals(2.0, meterRegistry.get("binary.runner.client.running").tag("client", "team-a").gauge().value());
+    }
+
+    @Test
+    void testApiKeysWeightsAndUntrackedClients() {
+        assertEquals("team-a", quotas.clientOfApiKey("secret"));
+        assertNull(quotas.clientOfApiKey("guess"));
+        assertEquals(3.0, quotas.weightOf("team-a"));
+        assertEquals(1.0, quotas.weightOf("team-b"));
+
+        quotas.tryAcquireSlot("team-a");
+        quotas.tryAcquireSlot("team-b");
+        quotas.tryAcquireSlot("team-c");
+        assertEquals(1.0, meterRegistry.get("binary.runner.client.running").tag("client", "other").gauge().value());
+    }
+}
@@ -0,0 +1,95 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kambi.binaryrunner.service.ExecutionJournal;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
+import static com.kambi.binaryrunner.model.CommandExitCode.TIMEOUT_REACHED;
+
+class ExecutionJournalTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void testRecordsAreKeptAfterReopening() {
+        var journal = open(1024 * 1024, 16);
+        long startNanos = System.nanoTime();
+        journal.record(List.of("/scripts/report.sh", "-l"), 0, startNanos, 120);
+        journal.record(List.of("sudo", "sh", "/scripts/ls.sh", "/tmp"), TIMEOUT_REACHED.getExitCode(), startNanos, 0);
+        journal.record(List.of("/scripts/report.sh", "-a"), 0, startNanos, 42);
+        journal.close();
+
+        var reopened = open(1024 * 1024, 16);
+        try {
+            var reports = reopened.query(Long.MIN_VALUE, Long.MAX_VALUE, "report.sh", null);
+            assertEquals(2, reports.size());
+            assertEquals(120, reports.get(0).outputBytes());
+            assertEquals(SUCCESSFUL.name(), reports.get(0).status());
+            assertNotEquals(reports.get(0).argumentHash(), reports.get(1).argumentHash());
+
+            var ls = reopened.query(Long.MIN_VALUE, Long.MAX_VALUE, "ls.sh", null);
+            assertEquals(1, ls.size());
+            assertEquals(TIMEOUT_REACHED.name(), ls.get(0).status());
+
+            long now = System.currentTimeMillis();
+            assertEquals(3, reopened.query(now - 60000, now, null, null).size());
+            assertTrue(reopened.query(now + 60000, Long.MAX_VALUE, null, null).isEmpty());
+            assertEquals(1, reopened.query(Long.MIN_VALUE, Long.MAX_VALUE, null, 1).size());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void testSegmentsAreRolledOverAndDeletedByRetention() throws IOException {
+        // 4 records per segment, at most 3 segments
+        var journal = open(64 + 4 * 80, 3);
+        for (int i = 0; i < 20; i++) {
+            journal.record(List.of("/scripts/report.sh", String.valueOf(i)), 0, System.nanoTime(), i);
+        }
+        journal.close();
+
+        try (var files = Files.list(directory)) {
+            assertEquals(3, files.filter(path -> path.toString().endsWith(".journal")).count());
+        }
+        var reopened = open(64 + 4 * 80, 3);
+        try {
+            var entries = reopened.query(Long.MIN_VALUE, Long.MAX_VALUE, null, null);
+            assertEquals(12, entries.size());
+            assertEquals(8, entries.get(0).outputBytes());
+            assertEquals(19, entries.get(11).outputBytes());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void testSecondJournalOnTheSameDirectoryIsDisabled() {
+        var journal = open(1024 * 1024, 16);
+        var second = open(1024 * 1024, 16);
+        try {
+            assertTrue(journal.isEnabled());
+            assertFalse(second.isEnabled());
+        } finally {
+            second.close();
+            journal.close();
+        }
+    }
+
+    private ExecutionJournal open(long segmentSize, int maxSegments) {
+        return new ExecutionJournal(true, directory.toString(), segmentSize, maxSegments, 60000, 64, 60000, 1000);
+    }
+}
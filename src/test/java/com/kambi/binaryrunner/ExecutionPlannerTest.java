@@ -0,0 +1,105 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.model.ExecutionPlan;
+import com.kambi.binaryrunner.service.BinaryPathResolver;
+import com.kambi.binaryrunner.service.BinaryRunnerMetrics;
+import com.kambi.binaryrunner.service.ExecutionPlanner;
+import com.kambi.binaryrunner.service.UnixBaseProcessBuilder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_PATH;
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_EXTENTION;
+import static com.kambi.binaryrunner.model.CommandExitCode.FILE_NOT_FOUND;
+
+class ExecutionPlannerTest {
+
+    private static final int THREADS = 8;
+    private static final int REQUESTS = 20_000;
+
+    private final BinaryPathResolver resolver = new BinaryPathResolver(5000, 1000, 10_000, List.of());
+    private final ExecutionPlanner planner = new ExecutionPlanner(new UnixBaseProcessBuilder(), resolver,
+            new BinaryRunnerMetrics(new SimpleMeterRegistry(), 10, 60000), 5000);
+    private final String script = DEFAULT_PATH + "correct" + DEFAULT_EXTENTION;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        resolver.shutdown();
+    }
+
+    @Test
+    void testSuperUserRequestsNeverLeakToOtherRequests() throws Exception {
+        var executor = Executors.newFixedThreadPool(THREADS);
+        var start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < REQUESTS / THREADS; i++) {
+                        boolean superUser = (i + thread) % 2 == 0;
+                        var request = new BinaryRunnerRequest((superUser ? "sudo " : "") + script,
+                                List.of("-l", String.valueOf(i % 3)));
+                        var plan = planner.plan(request);
+
+                        assertEquals(superUser, plan.superUser());
+                        assertEquals(superUser, plan.argv().get(0).equals("sudo"));
+                        assertEquals(new File(script).getPath(), plan.binaryFile());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testIdenticalRequestsShareTheirPlan() {
+        var plan = planner.plan(new BinaryRunnerRequest("sudo " + script, new ArrayList<>(List.of("-l")), null, 100L));
+        var same = planner.plan(new BinaryRunnerRequest("sudo " + script, List.of("-l"), null, 100L));
+
+        assertSame(plan, same);
+        assertEquals(List.of("sudo", "sh", plan.path(), "-l"), plan.argv());
+        assertEquals(100, plan.timeout());
+        assertEquals(5000, planner.plan(new BinaryRunnerRequest(script, null)).timeout());
+        assertEquals(plan.commands(), planner.plan(new BinaryRunnerRequest(script, List.of("-l"))).commands());
+    }
+
+    @Test
+    void testPlanIsImmutable() {
+        ExecutionPlan plan = planner.plan(new BinaryRunnerRequest(script, new ArrayList<>(List.of("-l"))));
+
+        assertThrows(UnsupportedOperationException.class, () -> plan.argv().add("rm"));
+        assertThrows(UnsupportedOperationException.class, () -> plan.newProcessBuilder().command().add("rm"));
+    }
+
+    @Test
+    void testNotFoundFileIsNotPlanned() {
+        var exception = assertThrows(BinaryRunningException.class,
+                () -> planner.plan(new BinaryRunnerRequest("sudo missing" + DEFAULT_EXTENTION, null)));
+        assertEquals(String.valueOf(FILE_NOT_FOUND.getExitCode()), exception.getMessage());
+    }
+}
@@ -0,0 +1,71 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+import com.kambi.binaryrunner.exception.BinaryRunningException;
+import com.kambi.binaryrunner.model.CapturedOutput;
+import com.kambi.binaryrunner.model.TruncationMode;
+import com.kambi.binaryrunner.service.BoundedOutputBuffer;
+import com.kambi.binaryrunner.service.OutputFilter;
+
+import static com.kambi.binaryrunner.model.CommandExitCode.INVALID_GREP;
+
+class OutputFilterTest {
+
+    // backtracks exponentially on a line of x, the back reference defeats the memoization of the loop
+    private static final String CATASTROPHIC_GREP = "^(x|xx)+\\1y$";
+    private static final String LINE = "x".repeat(64) + "\n";
+
+    @Test
+    void testInvalidGrepIsABadRequest() {
+        var request = BinaryRunnerRequest.builder().binaryFile("/scripts/report.sh").grep("(").build();
+
+        var exception = assertThrows(BinaryRunningException.class, () -> OutputFilter.of(request));
+        assertEquals(String.valueOf(INVALID_GREP.getExitCode()), exception.getMessage());
+    }
+
+    @Test
+    void testMatchIsStoppedByTheTimeoutOfTheCapturedOutput() {
+        var filter = OutputFilter.of(BinaryRunnerRequest.builder().binaryFile("/scripts/report.sh")
+                .grep(CATASTROPHIC_GREP).build());
+        var output = CapturedOutput.of(List.of(LINE.strip()));
+
+        long start = System.currentTimeMillis();
+        assertThrows(OutputFilter.MatchCancelledException.class,
+                () -> filter.apply(output, new BoundedOutputBuffer(1024, TruncationMode.HEAD), 1024, 100));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    void testMatchIsStoppedByTheInterruptionOfTheReader() throws Exception {
+        var filter = OutputFilter.of(BinaryRunnerRequest.builder().binaryFile("/scripts/report.sh")
+                .grep(CATASTROPHIC_GREP).build());
+        var thrown = new AtomicReference<Throwable>();
+        // like the task of a cancelled execution, the reader is interrupted while it matches a line
+        var reader = new Thread(() -> {
+            try (var filtered = filter.wrap(OutputStream.nullOutputStream(), 1024)) {
+                filtered.write(LINE.getBytes(StandardCharsets.US_ASCII));
+            } catch (Throwable ex) {
+                thrown.set(ex);
+            }
+        });
+        reader.start();
+        Thread.sleep(100);
+        reader.interrupt();
+        reader.join(5000);
+
+        assertFalse(reader.isAlive());
+        assertTrue(thrown.get() instanceof OutputFilter.MatchCancelledException);
+    }
+}
@@ -0,0 +1,93 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.service.ProcessExecutionScheduler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProcessExecutionSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProcessExecutionScheduler scheduler = new ProcessExecutionScheduler(1, 1,
+            Executors.defaultThreadFactory(), meterRegistry);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testRejectWhenRunningAndWaitingSlotsAreFull() {
+        scheduler.submit(() -> release.await(5, TimeUnit.SECONDS));
+        scheduler.submit(() -> release.await(5, TimeUnit.SECONDS));
+
+        assertThrows(RejectedExecutionException.class, () -> {
+            scheduler.submit(() -> true);
+        });
+        assertEquals(1.0, meterRegistry.get("binary.runner.executor.rejected").counter().count());
+    }
+
+    @Test
+    void testWaitingExecutionsStartEarliestDeadlineFirst() throws Exception {
+        var scheduler = new ProcessExecutionScheduler(1, 3, Executors.defaultThreadFactory(), meterRegistry);
+        List<Long> started = new CopyOnWriteArrayList<>();
+        try {
+            scheduler.submit(() -> release.await(5, TimeUnit.SECONDS));
+            var futures = List.of(30L, 10L, 20L).stream()
+                    .map(deadline -> scheduler.submit(() -> started.add(deadline), deadline))
+                    .toList();
+            release.countDown();
+            for (var future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(List.of(10L, 20L, 30L), started);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testFreeSlotsAreSharedBetweenClientsByTheirWeight() throws Exception {
+        var scheduler = new ProcessExecutionScheduler(1, 10, Executors.defaultThreadFactory(), meterRegistry);
+        List<String> started = new CopyOnWriteArrayList<>();
+        try {
+            scheduler.submit(() -> release.await(5, TimeUnit.SECONDS));
+            var futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(scheduler.submit(() -> started.add("noisy"), Long.MAX_VALUE, "noisy", 1, () -> {
+                }));
+            }
+            for (int i = 0; i < 2; i++) {
+                futures.add(scheduler.submit(() -> started.add("heavy"), Long.MAX_VALUE, "heavy", 2, () -> {
+                }));
+            }
+            futures.add(scheduler.submit(() -> started.add("quiet"), Long.MAX_VALUE, "quiet", 1, () -> {
+            }));
+            release.countDown();
+            for (var future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(List.of("noisy", "heavy", "quiet", "heavy", "noisy", "noisy", "noisy"), started);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
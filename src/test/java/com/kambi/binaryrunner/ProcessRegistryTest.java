@@ -0,0 +1,97 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.service.ProcessRegistry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProcessRegistryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProcessRegistry registry = new ProcessRegistry(200, 50, meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("windows"), "needs a unix shell");
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void testDestroyTreeStopsChildren() throws Exception {
+        var process = new ProcessBuilder("sh", "-c", "sleep 30 & sleep 30").start();
+        registry.register(process);
+        var children = awaitChildren(process);
+
+        registry.destroyTree(process);
+
+        assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+        for (var child : children) {
+            child.onExit().get(5, TimeUnit.SECONDS);
+            assertFalse(child.isAlive());
+        }
+    }
+
+    @Test
+    void testReleaseReapsLeakedChildren() throws Exception {
+        var process = new ProcessBuilder("sh", "-c", "sleep 30 & sleep 0.5").start();
+        registry.register(process);
+        var children = awaitChildren(process);
+        // waiting for the reaper to remember the children before the parent exits
+        Thread.sleep(200);
+        assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+
+        registry.release(process);
+
+        for (var child : children) {
+            child.onExit().get(5, TimeUnit.SECONDS);
+            assertFalse(child.isAlive());
+        }
+        assertEquals(0.0, meterRegistry.get("binary.runner.process.live").gauge().value());
+    }
+
+    @Test
+    void testReleaseReapsGrandchildrenOfAnExitedParent() throws Exception {
+        var process = new ProcessBuilder("sh", "-c", "sh -c 'sleep 30 & sleep 30' & sleep 0.5").start();
+        registry.register(process);
+        var descendants = awaitChildren(process, 3);
+        assertTrue(process.waitFor(5, TimeUnit.SECONDS));
+        process.onExit().get(5, TimeUnit.SECONDS);
+
+        registry.release(process);
+
+        for (var descendant : descendants) {
+            descendant.onExit().get(5, TimeUnit.SECONDS);
+            assertFalse(descendant.isAlive());
+        }
+    }
+
+    private List<ProcessHandle> awaitChildren(Process process) throws InterruptedException {
+        return awaitChildren(process, 1);
+    }
+
+    private List<ProcessHandle> awaitChildren(Process process, int count) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            var children = process.descendants().toList();
+            if (children.size() >= count) {
+                return children;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("no child process has been started");
+    }
+}
@@ -0,0 +1,166 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.kambi.binaryrunner.model.ResourceUsage;
+import com.kambi.binaryrunner.service.ProcessRegistry;
+import com.kambi.binaryrunner.service.ResourceUsageMonitor;
+import com.kambi.binaryrunner.service.ShellWorker;
+import com.kambi.binaryrunner.service.ShellWorkerPool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_PATH;
+import static com.kambi.binaryrunner.model.CommandExitCode.FILE_PERMISSION_DENIED;
+import static com.kambi.binaryrunner.model.CommandExitCode.INVALID_OPTION;
+import static com.kambi.binaryrunner.model.CommandExitCode.SUCCESSFUL;
+
+class ShellWorkerPoolTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProcessRegistry processRegistry;
+    private ShellWorkerPool pool;
+
+    @BeforeEach
+    void setUp() {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("windows"), "needs a unix shell");
+        processRegistry = new ProcessRegistry(200, 60000, meterRegistry);
+        pool = new ShellWorkerPool(true, 1, 2, 60000, processRegistry, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+            processRegistry.shutdown();
+        }
+    }
+
+    @Test
+    void testOutputIsTheSameAsDirectExecution() throws Exception {
+        var command = command("correct.sh", "-a", DEFAULT_PATH);
+        var expected = new String(new ProcessBuilder(command).start().getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+
+        var stdout = new ByteArrayOutputStream();
+        int exitCode = execute(command, stdout, new ByteArrayOutputStream());
+
+        assertEquals(SUCCESSFUL.getExitCode(), exitCode);
+        assertEquals(expected, stdout.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testErrorOutputAndExitCodes() throws Exception {
+        var stderr = new ByteArrayOutputStream();
+        int exitCode = execute(command("correct.sh", "--wrong-option"), new ByteArrayOutputStream(), stderr);
+
+        assertEquals(INVALID_OPTION.getExitCode(), exitCode);
+        assertTrue(stderr.size() > 0);
+        assertEquals(FILE_PERMISSION_DENIED.getExitCode(),
+                execute(command("no_permission.sh"), new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void testWorkerIsReusedAndRecycledAfterMaxJobs() throws Exception {
+        var processBuilder = new ProcessBuilder(command("correct.sh"));
+
+        var first = pool.acquire(processBuilder);
+        assertNotNull(first);
+        first.execute(processBuilder.command(), new ByteArrayOutputStream(), new ByteArrayOutputStream());
+        pool.release(first, true);
+
+        var second = pool.acquire(processBuilder);
+        assertSame(first, second);
+        second.execute(processBuilder.command(), new ByteArrayOutputStream(), new ByteArrayOutputStream());
+        pool.release(second, true);
+
+        assertEquals(1.0, meterRegistry.get("binary.runner.worker.recycled").tag("reason", "max-jobs")
+                .counter().count());
+        var replacement = awaitWorker(processBuilder);
+        assertNotSame(first, replacement);
+        pool.release(replacement, true);
+    }
+
+    @Test
+    void testUnsupportedCommandFallsBack() {
+        var superUser = new ProcessBuilder("sudo", "sh", command("correct.sh").get(0));
+        var newLine = new ProcessBuilder(command("correct.sh", "a\nb"));
+
+        assertNull(pool.acquire(superUser));
+        assertNull(pool.acquire(newLine));
+    }
+
+    @Test
+    void testUsageIsTheGrowthOfTheWorkerTree() throws Exception {
+        var monitor = new ResourceUsageMonitor(true, 20);
+        try {
+            // both of them are run by the only worker, the second one right after the busy one
+            var busy = executeTracked(monitor, command("busy.sh", "300000"));
+            var idle = executeTracked(monitor, command("correct.sh"));
+
+            assertNotNull(busy);
+            assertTrue(busy.cpuTime() > 0);
+            assertNotNull(idle);
+            assertTrue(idle.cpuTime() < busy.cpuTime());
+        } finally {
+            monitor.shutdown();
+        }
+    }
+
+    private ResourceUsage executeTracked(ResourceUsageMonitor monitor, List<String> command) throws Exception {
+        var worker = awaitWorker(new ProcessBuilder(command));
+        try {
+            var tracker = monitor.trackWorker(worker.getProcess());
+            assertEquals(SUCCESSFUL.getExitCode(),
+                    worker.execute(command, new ByteArrayOutputStream(), new ByteArrayOutputStream()));
+            return tracker.stop();
+        } finally {
+            pool.release(worker, true);
+        }
+    }
+
+    private int execute(List<String> command, ByteArrayOutputStream stdout, ByteArrayOutputStream stderr)
+            throws Exception {
+        var worker = awaitWorker(new ProcessBuilder(command));
+        try {
+            return worker.execute(command, stdout, stderr);
+        } finally {
+            pool.release(worker, true);
+        }
+    }
+
+    // a retired worker is replaced in the background
+    private ShellWorker awaitWorker(ProcessBuilder processBuilder) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            var worker = pool.acquire(processBuilder);
+            if (worker != null) {
+                return worker;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("no shell worker is available");
+    }
+
+    private static List<String> command(String file, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(new File(DEFAULT_PATH + file).getAbsolutePath());
+        command.addAll(List.of(args));
+        return command;
+    }
+}
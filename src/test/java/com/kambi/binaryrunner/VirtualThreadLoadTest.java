@@ -0,0 +1,135 @@
+package com.kambi.binaryrunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kambi.binaryrunner.config.VirtualThreads;
+import com.kambi.binaryrunner.dto.BinaryRunnerRequest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_PATH;
+import static com.kambi.binaryrunner.BinaryRunnerServiceTest.DEFAULT_EXTENTION;
+
+/*
+ * comparing platform and virtual threads for many concurrent slow binary files
+ * sent to the runner endpoint. the application is started twice on a random
+ * port, once by default and once by running.process.virtual-threads=true, so
+ * both the tomcat request handling and the process I/O of VirtualThreadConfig
+ * are measured. platform mode gets the thread budget of the default tomcat pool
+ * while the virtual mode is only limited by the number of requests.
+ * run by: ./mvnw -Pjava21,load-test test -Dtest=VirtualThreadLoadTest
+ */
+@Slf4j
+@Tag("load")
+class VirtualThreadLoadTest {
+
+    private static final int REQUESTS = 1000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final String SLEEP_SECONDS = "0.5";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testCompareConcurrencyAndLatency() throws Exception {
+        assumeTrue(VirtualThreads.isSupported(), "virtual threads need java 21");
+        var request = new BinaryRunnerRequest(new File(DEFAULT_PATH + "sleep" + DEFAULT_EXTENTION).getAbsolutePath(),
+                List.of(SLEEP_SECONDS));
+        var body = objectMapper.writeValueAsString(request);
+
+        var platform = run("platform", body, "running.process.virtual-threads=false",
+                "server.tomcat.threads.max=" + PLATFORM_THREADS,
+                "running.process.max-concurrent=" + PLATFORM_THREADS);
+        var virtual = run("virtual", body, "running.process.virtual-threads=true",
+                "running.process.max-concurrent=" + REQUESTS);
+
+        log.info("{}", platform);
+        log.info("{}", virtual);
+        assertEquals(REQUESTS, platform.succeeded());
+        assertEquals(REQUESTS, virtual.succeeded());
+    }
+
+    private LoadResult run(String mode, String body, String... properties) throws Exception {
+        // given as command line arguments, so they override application.properties
+        List<String> arguments = new ArrayList<>(List.of("--server.port=0",
+                "--running.process.timeout=60000",
+                "--running.process.queue-capacity=" + REQUESTS,
+                "--running.limiter.enabled=false",
+                "--running.clients.rate=100000",
+                "--running.clients.burst=100000",
+                "--running.clients.max-concurrent=" + REQUESTS,
+                "--running.journal.enabled=false"));
+        for (var property : properties) {
+            arguments.add("--" + property);
+        }
+        var application = new SpringApplicationBuilder(Application.class).run(arguments.toArray(String[]::new));
+        try {
+            int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+            var url = "http://localhost:" + port + "/api/v1/runner";
+            // warming up the application
+            send(url, body, 20);
+
+            var threads = ManagementFactory.getThreadMXBean();
+            int baselineThreads = threads.getThreadCount();
+            threads.resetPeakThreadCount();
+            long start = System.nanoTime();
+            var latencies = send(url, body, REQUESTS);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            latencies.sort(Long::compare);
+            long p99 = latencies.isEmpty() ? 0 : latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+            return new LoadResult(mode, latencies.size(), millis, TimeUnit.NANOSECONDS.toMillis(p99),
+                    Math.max(0, threads.getPeakThreadCount() - baselineThreads));
+        } finally {
+            application.close();
+        }
+    }
+
+    // the latencies of the succeeded requests in nanoseconds
+    private List<Long> send(String url, String body, int requests) throws Exception {
+        var executor = Executors.newFixedThreadPool(4);
+        var client = HttpClient.newBuilder().executor(executor).build();
+        try {
+            List<CompletableFuture<Long>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                long sent = System.nanoTime();
+                responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create(url))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), HttpResponse.BodyHandlers.discarding())
+                        .thenApply(response -> response.statusCode() == 200 ? System.nanoTime() - sent : -1));
+            }
+            List<Long> latencies = new ArrayList<>();
+            for (var response : responses) {
+                long latency = response.get(2, TimeUnit.MINUTES);
+                if (latency >= 0) {
+                    latencies.add(latency);
+                }
+            }
+            return latencies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private record LoadResult(String mode, int succeeded, long millis, long p99Millis, int extraThreads) {
+    }
+}
@@ -0,0 +1,3 @@
+#!/bin/bash
+for ((i = 0; i < $1; i++)); do :; done
+echo "$1"
@@ -0,0 +1,2 @@
+#!/bin/bash
+grep "$@"
\ No newline at end of file
@@ -0,0 +1,2 @@
+#!/bin/bash
+sleep "$@"
\ No newline at end of file